@@ -1,5 +1,6 @@
 package app;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -7,24 +8,42 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.SplittableRandom;
 import java.util.concurrent.ArrayBlockingQueue;
 
 import enums.MoveType;
 import enums.PlayerColor;
+import enums.SearchMode;
 import exception.MoveException;
 import game.model.Move;
 import game.player.HumanPlayer;
 import game.player.MCTSComputerPlayer;
+import game.player.OpeningBook;
 import game.player.Player;
 import game.player.SimpleComputerPlayer;
+import game.player.StatisticsCache;
 
 //proof of concept Go Game Runner
 public class AppRunner {
 	public static final int BOARD_SIZE = 9;
 	
 	public static void main(String[] args) throws NumberFormatException, MoveException, IOException{
-		Queue<Player> players = createPlayers();
-		GameState game = new GameState(BOARD_SIZE, new ArrayList<>(players));
+		//board size can be given as the first argument, e.g. 9, 13 or 19, the number of search
+		//threads per computer player as the second, the search mode (see SearchMode) as the third and the
+		//number of transposition table entries, 0 for none, as the fourth and the seed both players' searches
+		//start from as the fifth. The seed is printed so a game can be replayed. An opening book for both
+		//players to play from, see OpeningBookGenerator, can be given as the sixth, and a file both players
+		//keep search statistics in from game to game as the seventh
+		int boardSize = args.length > 0 ? Integer.parseInt(args[0]) : BOARD_SIZE;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		SearchMode mode = args.length > 2 ? SearchMode.valueOf(args[2]) : SearchMode.SHARED_TREE;
+		int transpositions = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : new SplittableRandom().nextLong();
+		System.out.println("Seed: " + seed);
+		OpeningBook book = args.length > 5 ? new OpeningBook(new File(args[5])) : null;
+		StatisticsCache cache = args.length > 6 ? new StatisticsCache(new File(args[6]), boardSize, StatisticsCache.DEFAULT_BYTES) : null;
+		Queue<Player> players = createPlayers(threads, mode, transpositions, seed, book, cache);
+		GameState game = new GameState(boardSize, new ArrayList<>(players));
 		int passes = 0;
 		do {
 			Player currentPlayer = game.getNextToMove();
@@ -40,13 +59,29 @@ public class AppRunner {
 		game.captureDeadGroups();
 		Map<PlayerColor, Integer> finalScore = game.getScore();
 		System.out.println("Final Score: " + finalScore);
+		if (cache != null){
+			cache.close();
+		}
 	}
 
 	//Great place for Spring here
-	private static Queue<Player> createPlayers() {
+	private static Queue<Player> createPlayers(int threads, SearchMode mode, int transpositions, long seed, OpeningBook book, StatisticsCache cache) {
 		Queue<Player> players = new ArrayBlockingQueue<>(2);
-		players.add(new MCTSComputerPlayer(PlayerColor.BLACK,10000));
-		players.add(new MCTSComputerPlayer(PlayerColor.WHITE, 100));
+		MCTSComputerPlayer black = new MCTSComputerPlayer(PlayerColor.BLACK,10000, threads);
+		MCTSComputerPlayer white = new MCTSComputerPlayer(PlayerColor.WHITE, 100, threads);
+		black.setSearchMode(mode);
+		white.setSearchMode(mode);
+		black.setTranspositionTableSize(transpositions);
+		white.setTranspositionTableSize(transpositions);
+		SplittableRandom seeds = new SplittableRandom(seed);
+		black.setSeed(seeds.nextLong());
+		white.setSeed(seeds.nextLong());
+		black.setOpeningBook(book);
+		white.setOpeningBook(book);
+		black.setStatisticsCache(cache);
+		white.setStatisticsCache(cache);
+		players.add(black);
+		players.add(white);
 		
 		return players;
 	}
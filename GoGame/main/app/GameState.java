@@ -2,29 +2,46 @@ package app;
 import enums.MoveType;
 import enums.PlayerColor;
 import exception.MoveException;
-import game.model.Board;
-import game.model.Stone;
+import game.model.FastBoard;
+import game.model.LongHashSet;
 import game.model.Move;
-import game.model.StoneGroup;
+import game.model.PointSet;
 import game.player.Player;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class GameState implements Cloneable {
 	
+	//mixed into the position hash when white is to move
+	private static final long WHITE_TO_MOVE = 0x6A09E667F3BCC909L;
+	
 	private int boardSize;
 	private int turn;
 	
-	private LinkedList<Player> players;
-	private Deque<MoveResult> moveHistory;
-	private Board board;
+	//players in turn order, the next player to move first
+	private Deque<Player> players;
+	private FastBoard board;
+	
+	//one entry per move played, kept in reused parallel arrays so playing and undoing moves never allocates
+	private Move[] historyMoves;
+	//the point that may not be played next because it would retake a ko
+	private int[] historyKoPoints;
+	//moves before this turn were played before the state was copied into, so they can't be undone
+	private int firstUndoableTurn;
+	//board undo depth before the move, and whether the move added a position to the superko set
+	private int[] historyBoardDepths;
+	private boolean[] historyNewPositions;
+	
+	//hashes of every board position seen so far, only consulted when superko is on
+	private boolean superko;
+	private LongHashSet positions;
 	
 	public GameState(){
 		this(AppRunner.BOARD_SIZE, new ArrayList<Player>());
@@ -36,23 +53,70 @@ public class GameState implements Cloneable {
 	 * @param players		players who are playing the game. The player at players[0] will go first
 	 */
 	public GameState(int boardSize, List<Player> players){
-		moveHistory = new LinkedList<>();
-		board = new Board(boardSize);
-		this.players = new LinkedList<Player>();
+		this.boardSize = boardSize;
+		board = new FastBoard(boardSize);
+		int capacity = board.getPoints().length * 2;
+		historyMoves = new Move[capacity];
+		historyKoPoints = new int[capacity];
+		historyBoardDepths = new int[capacity];
+		historyNewPositions = new boolean[capacity];
+		positions = new LongHashSet();
+		positions.add(board.getHash());
+		this.players = new ArrayDeque<Player>();
 		this.players.addAll(players);
 		turn = 0;
 	}
 	
 	/**
- 	* Returns a clone of the current game state
+ 	* Returns a clone of the current game state. The board is copied directly, no moves are replayed
  	*/
 	public GameState clone() {
-		GameState state = new GameState(boardSize, players);
-		state.board = this.board.clone();
-		for (Iterator<MoveResult> it = this.moveHistory.iterator(); it.hasNext();){
-			state.moveHistory.add(it.next());
+		try {
+			GameState state = (GameState) super.clone();
+			state.players = new ArrayDeque<Player>(players);
+			state.historyMoves = historyMoves.clone();
+			state.historyKoPoints = historyKoPoints.clone();
+			state.historyBoardDepths = historyBoardDepths.clone();
+			state.historyNewPositions = historyNewPositions.clone();
+			state.board = board.clone();
+			state.positions = positions.clone();
+			return state;
+		} catch (CloneNotSupportedException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Overwrites this state with another state of the same board size, reusing this state's board so
+	 * a search can keep a single scratch state. The board is copied without its undo log, see
+	 * {@link FastBoard#copyFrom(FastBoard)}, so only moves played after the copy can be undone
+	 * @param other		the state to copy
+	 */
+	public void copyFrom(GameState other) {
+		board.copyFrom(other.board);
+		positions.copyFrom(other.positions);
+		superko = other.superko;
+		turn = other.turn;
+		firstUndoableTurn = turn;
+		if (players.size() == other.players.size() && players.containsAll(other.players)){
+			//same players, just rotate them into the same order
+			while (players.peek() != other.players.peek()){
+				players.add(players.poll());
+			}
+		} else {
+			players.clear();
+			players.addAll(other.players);
+		}
+		if (historyMoves.length < other.historyMoves.length){
+			historyMoves = new Move[other.historyMoves.length];
+			historyKoPoints = new int[other.historyMoves.length];
+			historyBoardDepths = new int[other.historyMoves.length];
+			historyNewPositions = new boolean[other.historyMoves.length];
 		}
-		return state;
+		System.arraycopy(other.historyMoves, 0, historyMoves, 0, turn);
+		System.arraycopy(other.historyKoPoints, 0, historyKoPoints, 0, turn);
+		System.arraycopy(other.historyBoardDepths, 0, historyBoardDepths, 0, turn);
+		System.arraycopy(other.historyNewPositions, 0, historyNewPositions, 0, turn);
 	}
 	
 	/**
@@ -61,15 +125,89 @@ public class GameState implements Cloneable {
 	 * @throws MoveException	throws if move is invalid for this players
 	 */
 	public void addMove(Move move) throws MoveException{
+		if (move.getType().equals(MoveType.UNDO)){
+			undoMove();
+			return;
+		}
 		Player currentPlayer = players.poll();
-		Set<Stone> captured;
-		if (move.getType().equals(MoveType.PASS)){
-			captured = new HashSet<>();
-		} else {
-			captured = board.makeMove(move, currentPlayer.getColor());
+		int koPoint = FastBoard.NO_POINT;
+		int boardDepth = board.getUndoDepth();
+		boolean newPosition = false;
+		if (!move.getType().equals(MoveType.PASS)){
+			int point = board.point(move);
+			try {
+				if (!isLegalMove(move, currentPlayer.getColor())){
+					throw new MoveException("Invalid move");
+				}
+				board.makeMove(point, currentPlayer.getColor());
+			} catch (MoveException e) {
+				players.addFirst(currentPlayer);
+				throw e;
+			}
+			newPosition = positions.add(board.getHash());
+			//a single stone that captured a single stone and is now in atari can be retaken right away
+			if (board.getCapturedCount() == 1 && board.getGroupSize(point) == 1 && board.getAtariLiberty(point) != FastBoard.NO_POINT){
+				koPoint = board.getCaptured(0);
+			}
 		}
 		players.add(currentPlayer);
-		moveHistory.push(new MoveResult(move, captured, ++turn));
+		if (turn == historyMoves.length){
+			growHistory();
+		}
+		historyMoves[turn] = move;
+		historyKoPoints[turn] = koPoint;
+		historyBoardDepths[turn] = boardDepth;
+		historyNewPositions[turn] = newPosition;
+		turn++;
+	}
+	
+	private void growHistory(){
+		int capacity = historyMoves.length * 2;
+		historyMoves = Arrays.copyOf(historyMoves, capacity);
+		historyKoPoints = Arrays.copyOf(historyKoPoints, capacity);
+		historyBoardDepths = Arrays.copyOf(historyBoardDepths, capacity);
+		historyNewPositions = Arrays.copyOf(historyNewPositions, capacity);
+	}
+	
+	/**
+	 * Takes back the last move, restoring the board, captures, ko state and the player to move. Dead
+	 * groups removed after that move are put back as well
+	 * @throws MoveException	throws if no move has been played since the state was created or copied into
+	 */
+	public void undoMove() throws MoveException{
+		if (turn == 0){
+			throw new MoveException("No move to undo");
+		}
+		if (turn == firstUndoableTurn){
+			throw new MoveException("Moves played before the state was copied can't be undone");
+		}
+		turn--;
+		historyMoves[turn] = null;
+		if (historyNewPositions[turn]){
+			//the hash that was recorded is the one right after the move, before any dead groups were removed
+			board.undoTo(historyBoardDepths[turn] + 1);
+			positions.remove(board.getHash());
+		}
+		board.undoTo(historyBoardDepths[turn]);
+		players.addFirst(players.pollLast());
+	}
+	
+	/**
+	 * @return	the number of moves played so far
+	 */
+	public int getTurn(){
+		return turn;
+	}
+	
+	/**
+	 * @param turn	a turn already played, from 0 to {@link #getTurn()} - 1
+	 * @return		the move that was played on that turn
+	 */
+	public Move getMove(int turn){
+		if (turn < 0 || turn >= this.turn){
+			throw new IndexOutOfBoundsException("No move was played on turn " + turn);
+		}
+		return historyMoves[turn];
 	}
 	
 	/**
@@ -79,17 +217,27 @@ public class GameState implements Cloneable {
 	 */
 	public Set<Move> getPossibleMoves(PlayerColor player) {
 		Set<Move> moves = new HashSet<Move>();
-		for (int i=0; i<board.getBoardSize(); i++){
-			for (int j=0; j<board.getBoardSize(); j++){
-				Move move = Move.getMoveInstance(MoveType.NORMAL, i, j);
-				if (isLegalMove(move, player)){
-					moves.add(move);
-				}
+		PointSet legal = board.getLegalPoints(player);
+		for (int i=0; i<legal.size(); i++){
+			int point = legal.get(i);
+			if (isLegalMove(point, player)){
+				moves.add(board.getMove(point));
 			}
 		}
 		return moves;
 	}
 	
+	/**
+	 * Returns the points the player can play without copying anything. The set is kept up to date by the
+	 * board as moves are played and undone, but does not account for ko or superko, so a point taken from
+	 * it should still be checked with {@link #isLegalMove(int, PlayerColor)}
+	 * @param player 	the requested player
+	 * @return			a live view of the player's legal points
+	 */
+	public PointSet getLegalPoints(PlayerColor player) {
+		return board.getLegalPoints(player);
+	}
+	
 	/**
 	 * @return	the last move that was played
 	 */
@@ -103,21 +251,12 @@ public class GameState implements Cloneable {
 	 * @return			the last move that was played
 	 */
 	public Move getLastMove(PlayerColor color){
-		Move move = null;
-		if (!moveHistory.isEmpty()){
-			move = moveHistory.peekFirst().move;
-			if (players.peekLast().getColor().equals(color)){
-				return move;
-			} else {
-				move = null;
-				MoveResult temp = moveHistory.poll();
-				if (!moveHistory.isEmpty()){
-					move = moveHistory.peekFirst().move;
-				}
-				moveHistory.push(temp);
-			}
+		if (turn == 0){
+			return null;
+		} else if (players.peekLast().getColor().equals(color)){
+			return historyMoves[turn - 1];
 		}
-		return move;
+		return turn > 1 ? historyMoves[turn - 2] : null;
 	}
 	
 	/**
@@ -132,14 +271,53 @@ public class GameState implements Cloneable {
 		} else if (move.equals(Move.getMoveInstance(MoveType.PASS, 0, 0))){
 			return true;
 		}
-		Boolean boardLegal = board.isLegalMove(move, color);
-		MoveResult last = moveHistory.peekFirst();
-		Boolean retakingKo = last != null && last.captured.size() == 1 && 
-				board.getStoneGroupLibertiesAtLocation(last.move.getX(), last.move.getY()) == 1 &&
-				move.getX().equals(last.captured.iterator().next().x_location) &&
-				move.getY().equals(last.captured.iterator().next().y_location);
-		
-		return boardLegal && !retakingKo;
+		return board.isLegalMove(move, color) && isLegalMove(board.point(move), color);
+	}
+	
+	/**
+	 * Returns whether or not a normal move at the point is valid, includes ko logic (and positional
+	 * superko if it is turned on)
+	 * @param point		the board point in question
+	 * @param color		the player who is playing the move
+	 * @return			true if move is valid, false otherwise
+	 */
+	public boolean isLegalMove(int point, PlayerColor color){
+		boolean retakingKo = turn > 0 && historyKoPoints[turn - 1] == point;
+		if (retakingKo || !board.isLegalMove(point, color)){
+			return false;
+		}
+		return !superko || !positions.contains(board.getHashAfterMove(point, color));
+	}
+	
+	/**
+	 * @param superko	whether moves that recreate any earlier board position are illegal
+	 */
+	public void setSuperko(boolean superko){
+		this.superko = superko;
+	}
+	
+	public boolean isSuperko(){
+		return superko;
+	}
+	
+	/**
+	 * @return	a 64 bit hash of the stones on the board and the player to move, equal positions with the
+	 * 			same player to move always hash the same
+	 */
+	public long getPositionHash(){
+		return getPositionHash(0);
+	}
+	
+	/**
+	 * @param symmetry	one of the {@link FastBoard#SYMMETRIES}, see {@link FastBoard#transform(int, int)}
+	 * @return			the position hash the state would have with the board turned by the symmetry
+	 */
+	public long getPositionHash(int symmetry){
+		long hash = board.getSymmetricHash(symmetry);
+		if (!players.isEmpty() && players.peek().getColor().equals(PlayerColor.WHITE)){
+			hash ^= WHITE_TO_MOVE;
+		}
+		return hash;
 	}
 	
 	/**
@@ -151,6 +329,16 @@ public class GameState implements Cloneable {
 	public boolean isEye(Move move, PlayerColor color){
 		return board.isEye(move, color);
 	}
+	
+	/**
+	 * Returns whether the point is an eye for the requested player
+	 * @param point		the board point of the eye
+	 * @param color		the player who "owns" the eye
+	 * @return			returns true if this is an eye for this player, false otherwise
+	 */
+	public boolean isEye(int point, PlayerColor color){
+		return board.isEye(point, color);
+	}
 
 	/**
 	 * @return	get the last player moved
@@ -173,45 +361,40 @@ public class GameState implements Cloneable {
 		return board.getScore();
 	}
 	
+	/**
+	 * @param color		the requested player
+	 * @return			the score of that player
+	 */
+	public int getScore(PlayerColor color){
+		return board.getScore(color);
+	}
+	
 	public String toString() {
-		StringBuilder b = new StringBuilder("MoveHistory: " + moveHistory.toString());
+		StringBuilder b = new StringBuilder("MoveHistory: " + Arrays.asList(historyMoves).subList(0, turn));
 		b.append(board.toString());
 		return b.toString();
 	}
 	
 	/**
-	 *	Used to store information 
+	 * Removes dead stones before scoring, see {@link FastBoard#captureDeadGroups()}
 	 */
-	private class MoveResult {
-		public Move move;
-		public Set<Stone> captured;
-		public int turn;
-		
-		public MoveResult(Move move, Set<Stone> captured, int turn) {
-			this.move = move;
-			this.captured = captured;
-			this.turn = turn;
-		}
-
-		@Override
-		public String toString() {
-			return "MoveResult [move=" + move + ", captured=" + captured
-					+ ", turn=" + turn + "]";
-		}
-
-	}
-
-
 	public void captureDeadGroups() {
-		//do Bensen's algorithm in the future
 		board.captureDeadGroups();
 	}
 
-	public Set<StoneGroup> getGroupsInAtari() {
-		return board.getGroupsInAtari();
+	/**
+	 * @return	whether every point already belongs to a pass alive group or its territory, so playing
+	 * 			on can not change the score
+	 */
+	public boolean isSettled() {
+		return board.isSettled();
 	}
 
-	public StoneGroup getStoneGroupAt(Move move) {
-		return board.getStoneGroupAt(move);
+	/**
+	 * @return	the board backing this state, for callers that work with board points directly. Moves must
+	 * 			still be played through {@link #addMove(Move)}
+	 */
+	public FastBoard getBoard() {
+		return board;
 	}
 }
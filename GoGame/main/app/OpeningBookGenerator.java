@@ -0,0 +1,105 @@
+package app;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import enums.MoveType;
+import enums.PlayerColor;
+import exception.MoveException;
+import game.model.Move;
+import game.player.MCTSComputerPlayer;
+import game.player.MoveStatistics;
+import game.player.OpeningBook;
+import game.player.Player;
+
+//writes an opening book by searching every position up to a few moves into the game deeply, following the
+//few moves the search liked best in each
+public class OpeningBookGenerator {
+
+	private final int plies;
+	private final int width;
+	private final MCTSComputerPlayer[] players;
+	//every position searched so far, by book key, so a position reached again in another order or turned
+	//another way is only searched once
+	private final Map<Long, OpeningBook.Entry> entries = new HashMap<>();
+
+	/**
+	 * @param plies			how many moves into the game positions are searched
+	 * @param width			how many of the best moves of each position are followed
+	 * @param iterations	rollouts per position
+	 * @param threads		search threads
+	 * @param seed			the seed the searches start from
+	 */
+	public OpeningBookGenerator(int plies, int width, int iterations, int threads, long seed){
+		this.plies = plies;
+		this.width = width;
+		SplittableRandom seeds = new SplittableRandom(seed);
+		players = new MCTSComputerPlayer[PlayerColor.values().length];
+		for (PlayerColor color : PlayerColor.values()){
+			players[color.ordinal()] = new MCTSComputerPlayer(color, iterations, threads);
+			players[color.ordinal()].setSeed(seeds.nextLong());
+		}
+	}
+
+	public static void main(String[] args) throws NumberFormatException, MoveException, IOException {
+		//the file to write is the first argument, then optionally the board size, the number of moves into
+		//the game to go, the number of moves followed in each position, rollouts per position, search
+		//threads and the seed
+		if (args.length == 0){
+			System.out.println("usage: OpeningBookGenerator file [size [plies [width [iterations [threads [seed]]]]]]");
+			return;
+		}
+		File file = new File(args[0]);
+		int boardSize = args.length > 1 ? Integer.parseInt(args[1]) : AppRunner.BOARD_SIZE;
+		int plies = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+		int width = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+		int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 200000;
+		int threads = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+		long seed = args.length > 6 ? Long.parseLong(args[6]) : new SplittableRandom().nextLong();
+		System.out.println("Seed: " + seed);
+
+		OpeningBookGenerator generator = new OpeningBookGenerator(plies, width, iterations, threads, seed);
+		List<Player> players = new ArrayList<Player>(Arrays.asList(generator.players));
+		generator.generate(new GameState(boardSize, players), 0);
+		OpeningBook.write(file, boardSize, generator.entries.values());
+		System.out.println("Wrote " + generator.entries.size() + " positions to " + file);
+	}
+
+	//searches the position, and the positions after its best moves until deep enough
+	private void generate(GameState state, int ply) throws MoveException {
+		if (entries.containsKey(OpeningBook.key(state))){
+			return;
+		}
+		MCTSComputerPlayer player = players[state.getNextToMove().getColor().ordinal()];
+		//the positions are not searched in the order of a game
+		player.newGame();
+		player.getMove(state);
+		List<MoveStatistics> statistics = player.getLastSearchStatistics();
+		if (statistics.isEmpty()){
+			return;
+		}
+		MoveStatistics best = statistics.get(0);
+		OpeningBook.Entry entry = new OpeningBook.Entry(state, best.getMove(), best.getVisits(), best.getWins());
+		entries.put(entry.getKey(), entry);
+		System.out.println(entries.size() + ": " + best.getMove() + " after " + ply + " moves, won "
+				+ best.getWins() + " of " + best.getVisits());
+		if (ply + 1 >= plies){
+			return;
+		}
+		for (int i = 0; i<width && i<statistics.size(); i++){
+			Move move = statistics.get(i).getMove();
+			if (move.getType().equals(MoveType.PASS)){
+				continue;
+			}
+			GameState next = state.clone();
+			next.addMove(move);
+			generate(next, ply + 1);
+		}
+	}
+}
@@ -3,5 +3,5 @@ package enums;
 public enum MoveType {
 	NORMAL, 
 	PASS, 
-	UNDO	//undo functionality not put in yet
+	UNDO	//takes back the last move
 }
@@ -0,0 +1,7 @@
+package enums;
+
+public enum SearchMode {
+	SHARED_TREE,	//all threads search one tree
+	ROOT_PARALLEL,	//every thread searches its own tree, root statistics are merged at the end
+	LEAF_PARALLEL	//one thread walks the tree, every thread plays a rollout from the node it reaches
+}
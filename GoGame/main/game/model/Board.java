@@ -27,7 +27,8 @@ public class Board implements Cloneable, Serializable {
 	private Map<PlayerColor, Integer> currentScore = null;
 
 	public Board(Integer size){
-		this.boardSize = size < 3 || size > DEFAULT_BOARD_SIZE ? DEFAULT_BOARD_SIZE : size;
+		this.boardSize = size < 3 || size > Move.MAX_BOARD_SIZE ? DEFAULT_BOARD_SIZE : size;
+		size = boardSize;
 		activeStoneGroups = new HashSet<>();
 		intersections = new Intersection[size][size];
 		for (int i = 0; i<size; i++){
@@ -69,7 +70,8 @@ public class Board implements Cloneable, Serializable {
 	}
 
 	/**
-	 * Find which groups should be captured as a result of the move, capture them, and update liberties of stone groups
+	 * Find which groups should be captured as a result of the move and capture them. Liberties are
+	 * already up to date at this point (see {@link #addStone}), so captured groups have none left
 	 * @param move		the move just done
 	 * @param player	the player color who played this move
 	 * @return
@@ -80,20 +82,18 @@ public class Board implements Cloneable, Serializable {
 			if (neighbor.isOccupied()){
 				boolean isOtherPlayer = player != neighbor.getOccupant().getOwner();
 				StoneGroup neighborStoneGroup = neighbor.getOccupant().getGroup();
-				if (isOtherPlayer && neighborStoneGroup.getRemainingLiberties() == 1){
+				if (isOtherPlayer && neighborStoneGroup.getRemainingLiberties() == 0){
 					toBeCaptured.add(neighborStoneGroup);
 				}
 			}
 		}
 		
-		Set<Stone> captured = doCaptureGroups(player, toBeCaptured);
-		//obviously inefficient, make this faster eventually
-		recalculateAllLiberties();
-		return captured;
+		return doCaptureGroups(player, toBeCaptured);
 	}
 
 	/**
-	 * Do the actual capture logic
+	 * Do the actual capture logic. Every point freed by a captured stone becomes a liberty of the
+	 * groups that were touching it, no other group's liberties change
 	 * @param player
 	 * @param toBeCaptured
 	 * @return
@@ -107,6 +107,14 @@ public class Board implements Cloneable, Serializable {
 				intersections[stone.y_location][stone.x_location].setOccupant(null);
 				stone.setGroup(null);
 			}
+			for (Stone stone : stones){
+				Intersection freed = intersections[stone.y_location][stone.x_location];
+				for (Intersection neighbor : freed.getNeighbors()){
+					if (neighbor.isOccupied()){
+						neighbor.getOccupant().getGroup().addLiberty(freed);
+					}
+				}
+			}
 			capturedStones.addAll(stones);
 			for (StoneGroup neighboringStoneGroup : group.getSurroundingStoneGroups()){
 				neighboringStoneGroup.removeSurroundingStoneGroups(group);
@@ -120,39 +128,31 @@ public class Board implements Cloneable, Serializable {
 		return capturedStones;
 	}
 
-	/**
-	 * An inefficient method of recalculating the liberities after every move. Recalculates entire board
-	 */
-	private void recalculateAllLiberties() {
-		Set<StoneGroup> activeStoneGroups = getActiveStoneGroups();
-		for (StoneGroup group : activeStoneGroups){
-			Set<Intersection> liberties = new HashSet<>();
-			for (Stone stone : group.getStones()){
-				for (Intersection neighbor: intersections[stone.y_location][stone.x_location].getNeighbors()){
-					if (neighbor.getOccupant() == null){
-						liberties.add(neighbor);
-					}
-				}
-			}
-			group.setLiberties(liberties);
-		}
-	}
-
 	private Set<StoneGroup> getActiveStoneGroups() {
 		return activeStoneGroups;
 	}
 
 	/**
-	 * Add a stone at the requested location on the board
+	 * Add a stone at the requested location on the board. Only the groups touching the new stone 
+	 * have their liberties updated
 	 * @param x			The x location on the board to add a stone
 	 * @param y			The y location on the board to add a stone
 	 * @param player	The player who is placing the stone
 	 */
 	private void addStone(int x, int y, PlayerColor player) {
 		Stone newStone = new Stone(x,y,player);
-		intersections[y][x].setOccupant(newStone);
+		Intersection placed = intersections[y][x];
+		placed.setOccupant(newStone);
 		boolean newStoneIsUnconnected = true;
 		
+		for (Intersection i : placed.getNeighbors()){
+			if (i.isOccupied()){
+				i.getOccupant().getGroup().removeLiberty(placed);
+			} else {
+				newStone.getGroup().addLiberty(i);
+			}
+		}
+		
 		Set<StoneGroup> oldGroups = new HashSet<>();
 		oldGroups.add(newStone.getGroup());
 		for (Intersection i : intersections[y][x].getNeighbors()){
@@ -303,15 +303,17 @@ public class Board implements Cloneable, Serializable {
 		return boardSize;
 	}
 
-	//assumes stack is size one with an unoccupied intersection
+	//assumes stack is size one with an unoccupied intersection. The whole region is always visited,
+	//otherwise a later search could start inside it and count only part of it
 	private int territoryEnclosed(Stack<Intersection> territoryStack, boolean[][] visited, PlayerColor expectedColor){
 		int territory = 1;
+		boolean enclosed = true;
 		while (!territoryStack.isEmpty()){
 			Intersection i = territoryStack.pop();
 			visited[i.y_location][i.x_location] = true;
 			for (Intersection neighbor : i.getNeighbors()){
 				if (neighbor.isOccupied() && !neighbor.getOccupant().getOwner().equals(expectedColor)){
-					return 0;
+					enclosed = false;
 				} else if (!neighbor.isOccupied() && !visited[neighbor.y_location][neighbor.x_location]){
 					territory++;
 					visited[neighbor.y_location][neighbor.x_location] = true;
@@ -319,7 +321,7 @@ public class Board implements Cloneable, Serializable {
 				}
 			}
 		}
-		return territory;
+		return enclosed ? territory : 0;
 	}
 
 	@Override
@@ -367,20 +369,44 @@ public class Board implements Cloneable, Serializable {
 		return boardString.toString();
 	}
 
+	/**
+	 * Copies the stones, groups, liberties and captures directly instead of replaying the position
+	 */
 	@Override
 	public Board clone(){
-		String s = this.serialize();
-		try {
-			return Board.deserialize(s);
-		} catch (IOException | MoveException e) {
-			return null;
+		Board board = new Board(boardSize);
+		Map<StoneGroup, StoneGroup> copies = new HashMap<>();
+		for (StoneGroup group : activeStoneGroups){
+			StoneGroup copy = null;
+			for (Stone stone : group.getStones()){
+				Stone stoneCopy = new Stone(stone.x_location, stone.y_location, stone.getOwner());
+				if (copy == null){
+					copy = stoneCopy.getGroup();
+				} else {
+					stoneCopy.setGroup(copy);
+					copy.add(stoneCopy);
+				}
+				board.intersections[stone.y_location][stone.x_location].setOccupant(stoneCopy);
+			}
+			for (Intersection liberty : group.getLiberties()){
+				copy.addLiberty(board.intersections[liberty.y_location][liberty.x_location]);
+			}
+			copies.put(group, copy);
+			board.activeStoneGroups.add(copy);
 		}
+		for (StoneGroup group : activeStoneGroups){
+			for (StoneGroup surrounding : group.getSurroundingStoneGroups()){
+				copies.get(group).addSurroundingStoneGroups(copies.get(surrounding));
+			}
+		}
+		board.stonesCaptured.putAll(stonesCaptured);
+		return board;
 	}
 
 	public void captureDeadGroups() {
-		//eventually do Bensen's but for now, be stupid and delete 
-		//anything that only has a single liberty, assume this will
-		//only be called when there are no more valid moves
+		//delete anything that only has a single liberty, assume this will
+		//only be called when there are no more valid moves. FastBoard
+		//also removes stones that Benson's algorithm shows to be dead
 		Set<StoneGroup> blackToBeCaptured = new HashSet<>();
 		Set<StoneGroup> whiteToBeCaptured = new HashSet<>();
 		for (StoneGroup group : activeStoneGroups){
@@ -0,0 +1,1108 @@
+package game.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import enums.MoveType;
+import enums.PlayerColor;
+import exception.MoveException;
+
+/**
+ * Board implementation backed by flat primitive arrays instead of an object graph. Every point is an
+ * int index into a board that is surrounded by a one point wide sentinel border, so neighbors are found
+ * by adding a precomputed offset and never need a bounds check. All scratch space used by the rules
+ * (captures, scoring) is allocated once up front, making moves garbage free.
+ *
+ * Stones of a group are kept in a circular linked list (nextStone) and every stone knows the point that
+ * identifies its group (groupOf). Merging two groups relabels the smaller one and splices the two rings
+ * together. Each group keeps a count, sum and sum of squares of its pseudo liberties (a liberty is counted
+ * once for every stone next to it), which is enough to tell whether a group is in atari and where its
+ * last liberty is without looking at its stones.
+ *
+ * The board also keeps a 64 bit Zobrist hash of the stones on it, updated whenever a stone is placed
+ * or removed.
+ *
+ * Empty points, and the points each color may legally play (ignoring ko), are kept in PointSets. After
+ * every change only the points next to a stone that was placed or removed, and the last liberty of any
+ * group whose liberties changed, are checked again.
+ *
+ * Every write to the board state is recorded in an undo log as (field, index, old value), and each move
+ * marks where it started in the log, so any move can be taken back exactly with {@link #undo()}.
+ */
+public class FastBoard implements Cloneable {
+
+	public static final byte EMPTY = 0;
+	public static final byte BLACK = 1;
+	public static final byte WHITE = 2;
+	public static final byte BORDER = 3;
+
+	//returned by point lookups when there is no such point
+	public static final int NO_POINT = -1;
+
+	//the rotations and reflections of the board, see transform
+	public static final int SYMMETRIES = 8;
+
+	//the state that undo can restore, as indices into fields (color is stored separately as bytes)
+	private static final int GROUP_OF = 0;
+	private static final int NEXT_STONE = 1;
+	private static final int GROUP_SIZE = 2;
+	private static final int LIBERTY_COUNT = 3;
+	private static final int LIBERTY_SUM = 4;
+	private static final int LIBERTY_SUM_OF_SQUARES = 5;
+	private static final int STONES_CAPTURED = 6;
+	private static final int COLOR = 7;
+
+	//random keys for every color at every point, shared by all boards so equal positions hash equally
+	private static final long[][] ZOBRIST = new long[3][(Move.MAX_BOARD_SIZE + 2) * (Move.MAX_BOARD_SIZE + 2)];
+	static {
+		Random random = new Random(0x5EED5EEDL);
+		for (long[] keys : ZOBRIST){
+			for (int i = 0; i<keys.length; i++){
+				keys[i] = random.nextLong();
+			}
+		}
+	}
+
+	private int boardSize;
+	private int stride;
+	private int[] offsets;
+	//the offsets that lead from a point to its eight surrounding points, in the order of the pattern code
+	private int[] patternOffsets;
+
+	private byte[] color;
+	//the colors of the eight points around every point, two bits each, see Pattern3x3
+	private char[] pattern;
+	//stones captured by each color, indexed by color
+	private int[] stonesCaptured;
+	//points of each color, indexed by color
+	private int[] stoneCount;
+	private long hash;
+
+	//group structure, indexed by point
+	private int[] groupOf;
+	private int[] nextStone;
+	//group information, indexed by the point that identifies the group
+	private int[] groupSize;
+	private int[] libertyCount;
+	private int[] libertySum;
+	private int[] libertySumOfSquares;
+	private int[][] fields;
+
+	//pairs of (field << 16 | index, old value), and where in the log each move starts
+	private int[] undoLog;
+	private int undoTop;
+	private int[] undoMarks;
+	private long[] undoHashes;
+	private int undoDepth;
+
+	//scratch space for scoring and liberty counting
+	private int[] stack;
+	private int[] mark;
+	private int markId;
+	private int[] groupBuffer;
+	//scratch space for Benson's algorithm, created the first time it is needed
+	private PassAliveAnalysis passAlive;
+
+	//points captured by the last call to makeMove
+	private int[] captured;
+	private int capturedCount;
+
+	//every on board point, in row order
+	private int[] points;
+	//every empty on board point, kept up to date as stones are placed and removed
+	private PointSet empties;
+	//points each color can legally play, indexed by color
+	private PointSet[] legal;
+	//points whose legality has to be checked again after the current change
+	private int[] dirty;
+	private int dirtyCount;
+	private int[] dirtyMark;
+	private int dirtyId;
+	private Move[] moves;
+
+	private int blackScore;
+	private int whiteScore;
+	private boolean scoreIsCurrent;
+
+	public FastBoard(int size){
+		boardSize = size < 3 || size > Move.MAX_BOARD_SIZE ? Board.DEFAULT_BOARD_SIZE : size;
+		stride = boardSize + 2;
+		int area = stride * stride;
+		offsets = new int[]{-stride, stride, -1, 1};
+		patternOffsets = new int[]{-stride - 1, -stride, -stride + 1, -1, 1, stride - 1, stride, stride + 1};
+
+		color = new byte[area];
+		Arrays.fill(color, BORDER);
+		pattern = new char[area];
+		points = new int[boardSize * boardSize];
+		moves = new Move[area];
+		empties = new PointSet(area);
+		legal = new PointSet[]{null, new PointSet(area), new PointSet(area)};
+		for (int y = 0; y<boardSize; y++){
+			for (int x = 0; x<boardSize; x++){
+				int p = point(x, y);
+				color[p] = EMPTY;
+				empties.add(p);
+				legal[BLACK].add(p);
+				legal[WHITE].add(p);
+				points[y * boardSize + x] = p;
+				moves[p] = Move.getMoveInstance(MoveType.NORMAL, x, y);
+			}
+		}
+		for (int p : points){
+			for (int i = 0; i<patternOffsets.length; i++){
+				pattern[p] |= color[p + patternOffsets[i]] << 2 * i;
+			}
+		}
+
+		stonesCaptured = new int[3];
+		stoneCount = new int[4];
+		stoneCount[EMPTY] = points.length;
+		groupOf = new int[area];
+		nextStone = new int[area];
+		groupSize = new int[area];
+		libertyCount = new int[area];
+		libertySum = new int[area];
+		libertySumOfSquares = new int[area];
+		stack = new int[area];
+		mark = new int[area];
+		captured = new int[area];
+		groupBuffer = new int[area];
+		fields = new int[][]{groupOf, nextStone, groupSize, libertyCount, libertySum, libertySumOfSquares, stonesCaptured};
+		undoLog = new int[area * 16];
+		undoMarks = new int[area];
+		undoHashes = new long[area];
+		dirty = new int[area];
+		dirtyMark = new int[area];
+		dirtyId = 1;
+	}
+
+	/**
+	 * @param x		the x location on the board
+	 * @param y		the y location on the board
+	 * @return		the point index of that location
+	 */
+	public int point(int x, int y){
+		return (y + 1) * stride + x + 1;
+	}
+
+	/**
+	 * @param move	a normal move
+	 * @return		the point index the move is played at
+	 */
+	public int point(Move move){
+		return point(move.getX(), move.getY());
+	}
+
+	public int getX(int point){
+		return point % stride - 1;
+	}
+
+	public int getY(int point){
+		return point / stride - 1;
+	}
+
+	/**
+	 * @param point		an on board point
+	 * @return			the shared move instance for playing at that point
+	 */
+	public Move getMove(int point){
+		return moves[point];
+	}
+
+	/**
+	 * @return	the offsets that lead from a point to its four neighbors
+	 */
+	public int[] getNeighborOffsets(){
+		return offsets;
+	}
+
+	/**
+	 * @return	the offsets that lead from a point to the eight points around it, in the order of the bits of
+	 * 			{@link #getPattern(int)}
+	 */
+	public int[] getPatternOffsets(){
+		return patternOffsets;
+	}
+
+	/**
+	 * @return	every on board point, callers must not modify the array
+	 */
+	public int[] getPoints(){
+		return points;
+	}
+
+	/**
+	 * @return	a live view of the empty points on the board
+	 */
+	public PointSet getEmptyPoints(){
+		return empties;
+	}
+
+	/**
+	 * @param player	the player who would play
+	 * @return			a live view of the points the player can legally play, not counting ko
+	 */
+	public PointSet getLegalPoints(PlayerColor player){
+		return legal[stoneColor(player)];
+	}
+
+	public int getBoardSize() {
+		return boardSize;
+	}
+
+	public byte getColor(int point){
+		return color[point];
+	}
+
+	/**
+	 * @param point		an on board point
+	 * @return			the code of the 3x3 neighborhood around the point, see {@link Pattern3x3}
+	 */
+	public int getPattern(int point){
+		return pattern[point];
+	}
+
+	/**
+	 * @return	the Zobrist hash of the stones on the board, the empty board hashes to zero
+	 */
+	public long getHash(){
+		return hash;
+	}
+
+	/**
+	 * Computes the hash the board would have after the move, without playing it
+	 * @param point		a legal point for the player
+	 * @param player	the player who would play the move
+	 * @return			the Zobrist hash of the resulting position
+	 */
+	public long getHashAfterMove(int point, PlayerColor player){
+		byte c = stoneColor(player);
+		byte enemy = opponent(c);
+		long result = hash ^ ZOBRIST[c][point];
+		int id = ++markId;
+		for (int offset : offsets){
+			int neighbor = point + offset;
+			if (color[neighbor] == enemy && mark[groupOf[neighbor]] != id){
+				int group = groupOf[neighbor];
+				mark[group] = id;
+				if (isInAtari(group)){
+					int stone = group;
+					do {
+						result ^= ZOBRIST[enemy][stone];
+						stone = nextStone[stone];
+					} while (stone != group);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param point		an on board point
+	 * @param symmetry	one of the {@link #SYMMETRIES} rotations and reflections of the board: bit 0 mirrors
+	 * 					x, bit 1 mirrors y and bit 2 then swaps x and y. 0 leaves the board as it is
+	 * @return			the point the symmetry moves the point to
+	 */
+	public int transform(int point, int symmetry){
+		int x = getX(point);
+		int y = getY(point);
+		if ((symmetry & 1) != 0){
+			x = boardSize - 1 - x;
+		}
+		if ((symmetry & 2) != 0){
+			y = boardSize - 1 - y;
+		}
+		return (symmetry & 4) != 0 ? point(y, x) : point(x, y);
+	}
+
+	/**
+	 * @param symmetry	one of the {@link #SYMMETRIES}
+	 * @return			the symmetry that undoes it
+	 */
+	public static int inverse(int symmetry){
+		//swapping x and y turns a mirror of x into a mirror of y, the others undo themselves
+		int mirrors = symmetry & 3;
+		return (symmetry & 4) != 0 && (mirrors == 1 || mirrors == 2) ? symmetry ^ 3 : symmetry;
+	}
+
+	/**
+	 * Computes the hash the board would have with every stone moved by the symmetry. Looks at every point
+	 * @param symmetry	one of the {@link #SYMMETRIES}, see {@link #transform(int, int)}
+	 * @return			the Zobrist hash of the transformed board
+	 */
+	public long getSymmetricHash(int symmetry){
+		if (symmetry == 0){
+			return hash;
+		}
+		long result = 0;
+		for (int point : points){
+			if (color[point] != EMPTY){
+				result ^= ZOBRIST[color[point]][transform(point, symmetry)];
+			}
+		}
+		return result;
+	}
+
+	public static byte stoneColor(PlayerColor player){
+		return player == PlayerColor.BLACK ? BLACK : WHITE;
+	}
+
+	public static byte opponent(byte stoneColor){
+		return (byte) (3 - stoneColor);
+	}
+
+	/**
+	 * @param move 		the request move
+	 * @param player	the player who requested the move
+	 * @return 			the number of stones captured, the points are available from {@link #getCaptured(int)}
+	 * @throws MoveException
+	 */
+	public int makeMove(Move move, PlayerColor player) throws MoveException {
+		return makeMove(point(move), player);
+	}
+
+	/**
+	 * @param point 	the requested point
+	 * @param player	the player who requested the move
+	 * @return 			the number of stones captured, the points are available from {@link #getCaptured(int)}
+	 * @throws MoveException
+	 */
+	public int makeMove(int point, PlayerColor player) throws MoveException {
+		if (!isLegalMove(point, player)){
+			throw new MoveException("Invalid move");
+		}
+		byte c = stoneColor(player);
+		byte enemy = opponent(c);
+		beginChange();
+		int start = undoTop;
+		addStone(point, c);
+		capturedCount = 0;
+		for (int offset : offsets){
+			int neighbor = point + offset;
+			if (color[neighbor] == enemy && libertyCount[groupOf[neighbor]] == 0){
+				removeGroup(groupOf[neighbor]);
+			}
+		}
+		set(STONES_CAPTURED, c, stonesCaptured[c] + capturedCount);
+		scoreIsCurrent = false;
+		markChanged(start, undoTop);
+		updateLegalPoints();
+		return capturedCount;
+	}
+
+	/**
+	 * Plays a move and writes the captured points into a buffer supplied by the caller, so nothing is
+	 * allocated no matter how many stones are captured
+	 * @param point 	the requested point
+	 * @param player	the player who requested the move
+	 * @param captures	filled with the captured points, must have room for every point on the board
+	 * @return 			the number of stones captured
+	 * @throws MoveException
+	 */
+	public int makeMove(int point, PlayerColor player, int[] captures) throws MoveException {
+		int count = makeMove(point, player);
+		System.arraycopy(captured, 0, captures, 0, count);
+		return count;
+	}
+
+	/**
+	 * @param i		index into the stones captured by the last move
+	 * @return		the point the stone was captured from
+	 */
+	public int getCaptured(int i){
+		return captured[i];
+	}
+
+	public int getCapturedCount(){
+		return capturedCount;
+	}
+
+	public boolean isLegalMove(Move move, PlayerColor player){
+		int x = move.getX();
+		int y = move.getY();
+		return x >= 0 && x < boardSize && y >= 0 && y < boardSize && isLegalMove(point(x, y), player);
+	}
+
+	/**
+	 * Returns whether or not the request move is legal
+	 * @param point		the point to check
+	 * @param player	the player who is playing the move
+	 * @return			if the point is empty and playing there is not a self capture
+	 */
+	public boolean isLegalMove(int point, PlayerColor player){
+		if (point < 0 || point >= color.length){
+			return false;
+		}
+		return isLegal(point, stoneColor(player));
+	}
+
+	private boolean isLegal(int point, byte c){
+		if (color[point] != EMPTY){
+			return false;
+		}
+		for (int offset : offsets){
+			int neighbor = point + offset;
+			byte neighborColor = color[neighbor];
+			if (neighborColor == EMPTY){
+				return true;
+			} else if (neighborColor == c && !isInAtari(groupOf[neighbor])){
+				return true;
+			} else if (neighborColor == opponent(c) && isInAtari(groupOf[neighbor])){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isEye(Move move, PlayerColor player){
+		return isEye(point(move), player);
+	}
+
+	/**
+	 * Returns whether the point is a single point eye of one group belonging to the player
+	 * @param point		the point of the eye
+	 * @param player	the player who "owns" the eye
+	 * @return			true if this is an eye for this player, false otherwise
+	 */
+	public boolean isEye(int point, PlayerColor player){
+		if (!isLegalMove(point, player)){
+			return false;
+		}
+		byte c = stoneColor(player);
+		int group = NO_POINT;
+		for (int offset : offsets){
+			int neighbor = point + offset;
+			if (color[neighbor] == BORDER){
+				continue;
+			} else if (color[neighbor] != c){
+				return false;
+			} else if (group == NO_POINT){
+				group = groupOf[neighbor];
+			} else if (groupOf[neighbor] != group){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param point		a point occupied by a stone
+	 * @return			the point that identifies the group of the stone
+	 */
+	public int getGroup(int point){
+		return groupOf[point];
+	}
+
+	/**
+	 * Stones of a group form a ring, following it from any stone visits the whole group
+	 * @param point		a point occupied by a stone
+	 * @return			the next stone in the same group
+	 */
+	public int getNextStone(int point){
+		return nextStone[point];
+	}
+
+	/**
+	 * Whether playing the point would leave the player's stones there with a single liberty. Capturing
+	 * enemy stones counts as gaining a liberty
+	 * @param point		an empty point
+	 * @param player	the player who would play
+	 */
+	public boolean isSelfAtari(int point, PlayerColor player){
+		byte c = stoneColor(player);
+		byte enemy = opponent(c);
+		//the only liberty found so far, a second one means the move is safe
+		int liberty = NO_POINT;
+		for (int offset : offsets){
+			int neighbor = point + offset;
+			if (color[neighbor] == EMPTY){
+				if (liberty != NO_POINT){
+					return false;
+				}
+				liberty = neighbor;
+			} else if (color[neighbor] == enemy && isInAtari(groupOf[neighbor])){
+				return false;
+			}
+		}
+		int id = ++markId;
+		for (int offset : offsets){
+			int neighbor = point + offset;
+			if (color[neighbor] != c || mark[groupOf[neighbor]] == id){
+				continue;
+			}
+			int group = groupOf[neighbor];
+			mark[group] = id;
+			int stone = group;
+			do {
+				for (int stoneOffset : offsets){
+					int next = stone + stoneOffset;
+					if (color[next] == EMPTY && next != point && next != liberty){
+						if (liberty != NO_POINT){
+							return false;
+						}
+						liberty = next;
+					}
+				}
+				stone = nextStone[stone];
+			} while (stone != group);
+		}
+		return true;
+	}
+
+	/**
+	 * @param point		a point occupied by a stone
+	 * @return			the number of liberties of the group at the point
+	 */
+	public int getLiberties(int point){
+		int id = ++markId;
+		int liberties = 0;
+		int stone = point;
+		do {
+			for (int offset : offsets){
+				int neighbor = stone + offset;
+				if (color[neighbor] == EMPTY && mark[neighbor] != id){
+					mark[neighbor] = id;
+					liberties++;
+				}
+			}
+			stone = nextStone[stone];
+		} while (stone != point);
+		return liberties;
+	}
+
+	/**
+	 * @param point		a point occupied by a stone
+	 * @return			the only liberty of the group at the point, or NO_POINT if it is not in atari
+	 */
+	public int getAtariLiberty(int point){
+		if (color[point] != BLACK && color[point] != WHITE){
+			return NO_POINT;
+		}
+		int group = groupOf[point];
+		return isInAtari(group) ? libertySum[group] / libertyCount[group] : NO_POINT;
+	}
+
+	/**
+	 * @param point		a point occupied by a stone
+	 * @return			the number of stones in the group at the point
+	 */
+	public int getGroupSize(int point){
+		return groupSize[groupOf[point]];
+	}
+
+	/**
+	 * Finds every group that has a single liberty
+	 * @param groups	filled with the point identifying every group in atari
+	 * @return			the number of groups found
+	 */
+	public int getGroupsInAtari(int[] groups){
+		int found = 0;
+		for (int p : points){
+			if ((color[p] == BLACK || color[p] == WHITE) && groupOf[p] == p && isInAtari(p)){
+				groups[found++] = p;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Removes stones that can not survive. Stones inside territory that Benson's algorithm shows to be pass
+	 * alive for the other color are always dead. Anything else with only a single liberty is removed as
+	 * well, assuming this will only be called when there are no more valid moves. Pass alive groups always
+	 * have at least two liberties, so they are never removed. This is one change for {@link #undo()}
+	 */
+	public void captureDeadGroups() {
+		beginChange();
+		int start = undoTop;
+		analyzePassAlive();
+		int deadCount = 0;
+		for (int p : points){
+			if ((color[p] == BLACK || color[p] == WHITE) && groupOf[p] == p
+					&& (passAlive.getOwner(p) == opponent(color[p]) || isInAtari(p))){
+				groupBuffer[deadCount++] = p;
+			}
+		}
+		for (int i = 0; i<deadCount; i++){
+			byte owner = color[groupBuffer[i]];
+			capturedCount = 0;
+			removeGroup(groupBuffer[i]);
+			set(STONES_CAPTURED, opponent(owner), stonesCaptured[opponent(owner)] + capturedCount);
+		}
+		capturedCount = 0;
+		scoreIsCurrent = false;
+		markChanged(start, undoTop);
+		updateLegalPoints();
+	}
+
+	/**
+	 * Returns whether the game is decided: every point is a stone of a pass alive group or part of the
+	 * territory of one, so nothing either player does can change who owns any point
+	 * @return	true if every point is settled
+	 */
+	public boolean isSettled(){
+		analyzePassAlive();
+		for (int p : points){
+			if (passAlive.getOwner(p) == EMPTY){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param point		an on board point
+	 * @return			the color that owns the point for good, through a pass alive group or its territory,
+	 * 					or EMPTY if the point may still change hands
+	 */
+	public byte getPassAliveOwner(int point){
+		analyzePassAlive();
+		return passAlive.getOwner(point);
+	}
+
+	private void analyzePassAlive(){
+		if (passAlive == null){
+			passAlive = new PassAliveAnalysis(this);
+		}
+		passAlive.clear();
+		passAlive.analyze(BLACK);
+		passAlive.analyze(WHITE);
+	}
+
+	/**
+	 * Get the current score (only counts territory that is completely surrounded with no enemy stones in it
+	 * minus the stones that were captured by the opponent)
+	 * @param player	the player whose score is requested
+	 * @return			the score
+	 */
+	public int getScore(PlayerColor player){
+		if (!scoreIsCurrent){
+			calculateScore();
+		}
+		return player == PlayerColor.BLACK ? blackScore : whiteScore;
+	}
+
+	/**
+	 * @return	A map of what score each player has
+	 */
+	public Map<PlayerColor, Integer> getScore(){
+		Map<PlayerColor, Integer> score = new HashMap<>();
+		score.put(PlayerColor.BLACK, getScore(PlayerColor.BLACK));
+		score.put(PlayerColor.WHITE, getScore(PlayerColor.WHITE));
+		return score;
+	}
+
+	public int getStonesCaptures(PlayerColor playerColor){
+		return stonesCaptured[stoneColor(playerColor)];
+	}
+
+	/**
+	 * @return	the number of stones of the player on the board
+	 */
+	public int getStoneCount(PlayerColor playerColor){
+		return stoneCount[stoneColor(playerColor)];
+	}
+
+	private void calculateScore() {
+		blackScore = 0;
+		whiteScore = 0;
+		int visited = ++markId;
+		for (int p : points){
+			if (color[p] == EMPTY && mark[p] != visited){
+				int regionSize = 0;
+				int bordering = 0;
+				int top = 0;
+				stack[top++] = p;
+				mark[p] = visited;
+				while (top > 0){
+					int point = stack[--top];
+					regionSize++;
+					for (int offset : offsets){
+						int neighbor = point + offset;
+						if (color[neighbor] == EMPTY){
+							if (mark[neighbor] != visited){
+								mark[neighbor] = visited;
+								stack[top++] = neighbor;
+							}
+						} else if (color[neighbor] != BORDER){
+							bordering |= color[neighbor];
+						}
+					}
+				}
+				if (bordering == BLACK){
+					blackScore += regionSize;
+				} else if (bordering == WHITE){
+					whiteScore += regionSize;
+				}
+			}
+		}
+		blackScore -= stonesCaptured[WHITE];
+		whiteScore -= stonesCaptured[BLACK];
+		scoreIsCurrent = true;
+	}
+
+	//a group is in atari when all of its pseudo liberties are the same point
+	private boolean isInAtari(int group){
+		int count = libertyCount[group];
+		return count > 0 && (long) count * libertySumOfSquares[group] == (long) libertySum[group] * libertySum[group];
+	}
+
+	private void addLiberty(int group, int liberty){
+		markAtariLiberty(group);
+		set(LIBERTY_COUNT, group, libertyCount[group] + 1);
+		set(LIBERTY_SUM, group, libertySum[group] + liberty);
+		set(LIBERTY_SUM_OF_SQUARES, group, libertySumOfSquares[group] + liberty * liberty);
+	}
+
+	private void removeLiberty(int group, int liberty){
+		markAtariLiberty(group);
+		set(LIBERTY_COUNT, group, libertyCount[group] - 1);
+		set(LIBERTY_SUM, group, libertySum[group] - liberty);
+		set(LIBERTY_SUM_OF_SQUARES, group, libertySumOfSquares[group] - liberty * liberty);
+	}
+
+	//places a stone as a new group, then merges it with any friendly neighbors
+	private void addStone(int point, byte c){
+		setColor(point, c);
+		hash ^= ZOBRIST[c][point];
+		set(GROUP_OF, point, point);
+		set(NEXT_STONE, point, point);
+		set(GROUP_SIZE, point, 1);
+		set(LIBERTY_COUNT, point, 0);
+		set(LIBERTY_SUM, point, 0);
+		set(LIBERTY_SUM_OF_SQUARES, point, 0);
+		for (int offset : offsets){
+			int neighbor = point + offset;
+			if (color[neighbor] == EMPTY){
+				addLiberty(point, neighbor);
+			} else if (color[neighbor] != BORDER){
+				removeLiberty(groupOf[neighbor], point);
+			}
+		}
+		for (int offset : offsets){
+			int neighbor = point + offset;
+			if (color[neighbor] == c && groupOf[neighbor] != groupOf[point]){
+				mergeGroups(groupOf[point], groupOf[neighbor]);
+			}
+		}
+	}
+
+	private void mergeGroups(int first, int second){
+		int larger = groupSize[first] >= groupSize[second] ? first : second;
+		int smaller = larger == first ? second : first;
+		markAtariLiberty(smaller);
+		markAtariLiberty(larger);
+		int stone = smaller;
+		do {
+			set(GROUP_OF, stone, larger);
+			stone = nextStone[stone];
+		} while (stone != smaller);
+		int next = nextStone[larger];
+		set(NEXT_STONE, larger, nextStone[smaller]);
+		set(NEXT_STONE, smaller, next);
+		set(GROUP_SIZE, larger, groupSize[larger] + groupSize[smaller]);
+		set(LIBERTY_COUNT, larger, libertyCount[larger] + libertyCount[smaller]);
+		set(LIBERTY_SUM, larger, libertySum[larger] + libertySum[smaller]);
+		set(LIBERTY_SUM_OF_SQUARES, larger, libertySumOfSquares[larger] + libertySumOfSquares[smaller]);
+	}
+
+	//removes the group from the board, adding its points to the captured list
+	private void removeGroup(int group){
+		int stone = group;
+		do {
+			hash ^= ZOBRIST[color[stone]][stone];
+			setColor(stone, EMPTY);
+			captured[capturedCount++] = stone;
+			stone = nextStone[stone];
+		} while (stone != group);
+		do {
+			for (int offset : offsets){
+				int neighbor = stone + offset;
+				if (color[neighbor] == BLACK || color[neighbor] == WHITE){
+					addLiberty(groupOf[neighbor], stone);
+				}
+			}
+			stone = nextStone[stone];
+		} while (stone != group);
+	}
+
+	/**
+	 * @return	the number of changes (moves, dead group removals) that can be undone
+	 */
+	public int getUndoDepth(){
+		return undoDepth;
+	}
+
+	/**
+	 * Takes back the last change to the board, restoring groups, liberties, captures and the hash
+	 * @throws MoveException	if there is nothing to undo
+	 */
+	public void undo() throws MoveException {
+		if (undoDepth == 0){
+			throw new MoveException("Nothing to undo");
+		}
+		undoTo(undoDepth - 1);
+	}
+
+	/**
+	 * Takes back changes until only the given number of changes remain
+	 * @param depth		the undo depth to return to, see {@link #getUndoDepth()}
+	 */
+	public void undoTo(int depth){
+		if (depth >= undoDepth){
+			return;
+		}
+		int start = undoMarks[depth];
+		int end = undoTop;
+		markChanged(start, end);
+		while (undoTop > start){
+			int old = undoLog[--undoTop];
+			int entry = undoLog[--undoTop];
+			int field = entry >>> 16;
+			int index = entry & 0xFFFF;
+			if (field == COLOR){
+				changeColor(index, (byte) old);
+			} else {
+				fields[field][index] = old;
+			}
+		}
+		hash = undoHashes[depth];
+		undoDepth = depth;
+		capturedCount = 0;
+		scoreIsCurrent = false;
+		markChanged(start, end);
+		updateLegalPoints();
+	}
+
+	/**
+	 * Marks every point whose legality may depend on the changes in part of the undo log, as seen from the
+	 * current state: points that changed color and their neighbors, and the last liberty of every group
+	 * whose liberties or stones changed
+	 */
+	private void markChanged(int from, int to){
+		for (int i = from; i<to; i += 2){
+			int field = undoLog[i] >>> 16;
+			int index = undoLog[i] & 0xFFFF;
+			if (field == COLOR){
+				markDirty(index);
+				for (int offset : offsets){
+					markDirty(index + offset);
+				}
+			} else if (field == LIBERTY_COUNT){
+				markAtariLiberty(index);
+			} else if (field == GROUP_OF && (color[index] == BLACK || color[index] == WHITE)){
+				markAtariLiberty(groupOf[index]);
+			}
+		}
+	}
+
+	private void markAtariLiberty(int group){
+		if ((color[group] == BLACK || color[group] == WHITE) && groupOf[group] == group && isInAtari(group)){
+			markDirty(libertySum[group] / libertyCount[group]);
+		}
+	}
+
+	private void markDirty(int point){
+		if (dirtyMark[point] != dirtyId){
+			dirtyMark[point] = dirtyId;
+			dirty[dirtyCount++] = point;
+		}
+	}
+
+	//checks every dirty point again and updates the legal point sets
+	private void updateLegalPoints(){
+		for (int i = 0; i<dirtyCount; i++){
+			int point = dirty[i];
+			if (color[point] == BORDER){
+				continue;
+			}
+			for (byte c = BLACK; c <= WHITE; c++){
+				if (isLegal(point, c)){
+					legal[c].add(point);
+				} else {
+					legal[c].remove(point);
+				}
+			}
+		}
+		dirtyCount = 0;
+		dirtyId++;
+	}
+
+	//marks the start of a change that can be undone as a unit
+	private void beginChange(){
+		if (undoDepth == undoMarks.length){
+			undoMarks = Arrays.copyOf(undoMarks, undoMarks.length * 2);
+			undoHashes = Arrays.copyOf(undoHashes, undoHashes.length * 2);
+		}
+		undoMarks[undoDepth] = undoTop;
+		undoHashes[undoDepth] = hash;
+		undoDepth++;
+	}
+
+	private void set(int field, int index, int value){
+		int[] array = fields[field];
+		record(field, index, array[index]);
+		array[index] = value;
+	}
+
+	private void setColor(int point, byte value){
+		record(COLOR, point, color[point]);
+		changeColor(point, value);
+	}
+
+	//changes the color of a point along with the empty points and the patterns of the points around it
+	private void changeColor(int point, byte value){
+		if (value == EMPTY){
+			empties.add(point);
+		} else {
+			empties.remove(point);
+		}
+		stoneCount[color[point]]--;
+		stoneCount[value]++;
+		int change = color[point] ^ value;
+		for (int i = 0; i<patternOffsets.length; i++){
+			//the point is the i-th neighbor of the point the other way
+			pattern[point - patternOffsets[i]] ^= change << 2 * i;
+		}
+		color[point] = value;
+	}
+
+	private void record(int field, int index, int old){
+		if (undoTop + 2 > undoLog.length){
+			undoLog = Arrays.copyOf(undoLog, undoLog.length * 2);
+		}
+		undoLog[undoTop++] = field << 16 | index;
+		undoLog[undoTop++] = old;
+	}
+
+	/**
+	 * Convert the given string into a valid board, see {@link Board#deserialize(String)}
+	 * @param s
+	 * @return
+	 * @throws IOException
+	 * @throws MoveException
+	 */
+	public static FastBoard deserialize(String s) throws IOException, MoveException {
+		String[] lines = s.split("\n");
+		for (String line : lines){
+			if (line.length() != lines.length){
+				throw new IOException("Number of rows must equal number of columns");
+			}
+		}
+		FastBoard board = new FastBoard(lines.length);
+		for (int i = 0; i<lines.length; i++){
+			for (int j = 0; j<lines.length; j++){
+				if (lines[i].charAt(j) == 'B'){
+					board.makeMove(board.point(j, i), PlayerColor.BLACK);
+				} else if (lines[i].charAt(j) == 'W'){
+					board.makeMove(board.point(j, i), PlayerColor.WHITE);
+				}
+			}
+		}
+		return board;
+	}
+
+	public String serialize() {
+		StringBuilder boardString = new StringBuilder();
+		String end = "";
+		for (int y = 0; y<boardSize; y++){
+			boardString.append(end);
+			for (int x = 0; x<boardSize; x++){
+				byte c = color[point(x, y)];
+				boardString.append(c == BLACK ? 'B' : c == WHITE ? 'W' : '+');
+			}
+			end = "\n";
+		}
+		return boardString.toString();
+	}
+
+	@Override
+	public FastBoard clone() {
+		try {
+			FastBoard board = (FastBoard) super.clone();
+			board.color = color.clone();
+			board.pattern = pattern.clone();
+			board.empties = empties.clone();
+			board.legal = new PointSet[]{null, legal[BLACK].clone(), legal[WHITE].clone()};
+			board.dirty = new int[dirty.length];
+			board.dirtyMark = new int[dirtyMark.length];
+			board.stonesCaptured = stonesCaptured.clone();
+			board.stoneCount = stoneCount.clone();
+			board.groupOf = groupOf.clone();
+			board.nextStone = nextStone.clone();
+			board.groupSize = groupSize.clone();
+			board.libertyCount = libertyCount.clone();
+			board.libertySum = libertySum.clone();
+			board.libertySumOfSquares = libertySumOfSquares.clone();
+			board.stack = new int[stack.length];
+			board.mark = new int[mark.length];
+			board.markId = 0;
+			board.captured = captured.clone();
+			board.groupBuffer = new int[groupBuffer.length];
+			board.fields = new int[][]{board.groupOf, board.nextStone, board.groupSize, board.libertyCount,
+					board.libertySum, board.libertySumOfSquares, board.stonesCaptured};
+			board.undoLog = undoLog.clone();
+			board.undoMarks = undoMarks.clone();
+			board.undoHashes = undoHashes.clone();
+			//the analysis holds the board it was made for, the clone makes its own when it needs one
+			board.passAlive = null;
+			return board;
+		} catch (CloneNotSupportedException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Overwrites this board with the position of another board of the same size, reusing this board's arrays.
+	 * Only the position is copied, so the cost does not grow with the game. The copy starts with an empty undo
+	 * log and can't undo anything done before it was copied
+	 * @param other		the board to copy
+	 */
+	public void copyFrom(FastBoard other) {
+		if (other.boardSize != boardSize){
+			throw new IllegalArgumentException("Boards must be the same size to copy");
+		}
+		System.arraycopy(other.color, 0, color, 0, color.length);
+		System.arraycopy(other.pattern, 0, pattern, 0, pattern.length);
+		empties.copyFrom(other.empties);
+		legal[BLACK].copyFrom(other.legal[BLACK]);
+		legal[WHITE].copyFrom(other.legal[WHITE]);
+		System.arraycopy(other.stonesCaptured, 0, stonesCaptured, 0, stonesCaptured.length);
+		System.arraycopy(other.stoneCount, 0, stoneCount, 0, stoneCount.length);
+		System.arraycopy(other.groupOf, 0, groupOf, 0, groupOf.length);
+		System.arraycopy(other.nextStone, 0, nextStone, 0, nextStone.length);
+		System.arraycopy(other.groupSize, 0, groupSize, 0, groupSize.length);
+		System.arraycopy(other.libertyCount, 0, libertyCount, 0, libertyCount.length);
+		System.arraycopy(other.libertySum, 0, libertySum, 0, libertySum.length);
+		System.arraycopy(other.libertySumOfSquares, 0, libertySumOfSquares, 0, libertySumOfSquares.length);
+		System.arraycopy(other.captured, 0, captured, 0, other.capturedCount);
+		capturedCount = other.capturedCount;
+		hash = other.hash;
+		undoTop = 0;
+		undoDepth = 0;
+		blackScore = other.blackScore;
+		whiteScore = other.whiteScore;
+		scoreIsCurrent = other.scoreIsCurrent;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder boardString = new StringBuilder();
+		for (int i = 0; i<boardSize; i++){
+			boardString.append(" " + i);
+		}
+		boardString.append("\n");
+		String[] rows = serialize().split("\n");
+		for (int i = 0; i<rows.length; i++){
+			for (char c : rows[i].toCharArray()){
+				boardString.append(" " + c);
+			}
+			boardString.append(" " + i + "\n");
+		}
+		return "FastBoard [board looks like:\n" + boardString.toString() + "boardSize=" + boardSize
+				+ ", captured={BLACK=" + stonesCaptured[BLACK] + ", WHITE=" + stonesCaptured[WHITE] + "}]";
+	}
+}
@@ -0,0 +1,154 @@
+package game.model;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs using open addressing with linear probing, meant for position hashes. Nothing
+ * is allocated when adding unless the table has to grow.
+ */
+public class LongHashSet implements Cloneable {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	//zero marks an empty slot, so whether zero itself is in the set is tracked separately
+	private long[] table;
+	private boolean containsZero;
+	private int size;
+
+	public LongHashSet(){
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize	how many values the set should hold before it has to grow
+	 */
+	public LongHashSet(int expectedSize){
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity < expectedSize * 2){
+			capacity <<= 1;
+		}
+		table = new long[capacity];
+	}
+
+	/**
+	 * @param value		the value to add
+	 * @return			true if the value was not in the set yet
+	 */
+	public boolean add(long value){
+		if (value == 0){
+			boolean added = !containsZero;
+			containsZero = true;
+			if (added){
+				size++;
+			}
+			return added;
+		}
+		int slot = slot(value);
+		if (table[slot] == value){
+			return false;
+		}
+		table[slot] = value;
+		if (++size * 2 > table.length){
+			grow();
+		}
+		return true;
+	}
+
+	public boolean contains(long value){
+		if (value == 0){
+			return containsZero;
+		}
+		return table[slot(value)] == value;
+	}
+
+	/**
+	 * @param value		the value to remove
+	 * @return			true if the value was in the set
+	 */
+	public boolean remove(long value){
+		if (value == 0){
+			boolean removed = containsZero;
+			containsZero = false;
+			if (removed){
+				size--;
+			}
+			return removed;
+		}
+		int mask = table.length - 1;
+		int hole = slot(value);
+		if (table[hole] != value){
+			return false;
+		}
+		table[hole] = 0;
+		size--;
+		//shift back later values of the probe run that can no longer be reached past the hole
+		for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask){
+			int home = mix(table[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)){
+				table[hole] = table[next];
+				table[next] = 0;
+				hole = next;
+			}
+		}
+		return true;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public void clear(){
+		Arrays.fill(table, 0);
+		containsZero = false;
+		size = 0;
+	}
+
+	//the slot holding the value, or the empty slot where it would go
+	private int slot(long value){
+		int mask = table.length - 1;
+		int slot = mix(value) & mask;
+		while (table[slot] != 0 && table[slot] != value){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int mix(long value){
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void grow(){
+		long[] old = table;
+		table = new long[old.length * 2];
+		for (long value : old){
+			if (value != 0){
+				table[slot(value)] = value;
+			}
+		}
+	}
+
+	/**
+	 * Overwrites this set with the contents of another, reusing this set's table when it has the same capacity
+	 * @param other		the set to copy
+	 */
+	public void copyFrom(LongHashSet other){
+		if (table.length != other.table.length){
+			table = new long[other.table.length];
+		}
+		System.arraycopy(other.table, 0, table, 0, table.length);
+		containsZero = other.containsZero;
+		size = other.size;
+	}
+
+	@Override
+	public LongHashSet clone() {
+		try {
+			LongHashSet set = (LongHashSet) super.clone();
+			set.table = table.clone();
+			return set;
+		} catch (CloneNotSupportedException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package game.model;
+
+import java.util.Arrays;
+
+/**
+ * Benson's algorithm for unconditional life. For one color, the board is split into regions (maximal
+ * connected areas without that color's stones) and chains (that color's groups). A region is vital to a
+ * chain when every empty point in it is a liberty of the chain. Chains with fewer than two healthy vital
+ * regions are dropped, and regions next to a dropped chain stop being healthy, until nothing changes. The
+ * chains left can never be captured, even if their owner always passes, and enemy stones in the vital
+ * regions they enclose are dead.
+ *
+ * All scratch space is sized for the board once, so running the analysis allocates nothing.
+ */
+class PassAliveAnalysis {
+
+	private final FastBoard board;
+	private final int[] offsets;
+	private final int[] points;
+
+	//the color that settled every point, EMPTY when the point could still change hands
+	private byte[] owner;
+
+	//points of every region, grouped by region, and where each region starts
+	private int[] regionPoints;
+	private int[] regionStart;
+	private boolean[] regionHealthy;
+	//chains bordering each region, whether the region is vital to them, and where each region starts
+	private int[] pairChain;
+	private boolean[] pairVital;
+	private int[] pairStart;
+
+	//chains of the analyzed color, and their state indexed by the point that identifies them
+	private int[] chains;
+	private boolean[] chainAlive;
+	private int[] vitalCount;
+	//per chain, the region last seen next to it, the last point counted as its liberty in that region
+	//and how many empty points of the region are its liberties
+	private int[] chainRegion;
+	private int[] chainLastLiberty;
+	private int[] chainLiberties;
+
+	private int[] stack;
+	private int[] visited;
+	private int visitedId;
+
+	PassAliveAnalysis(FastBoard board){
+		this.board = board;
+		offsets = board.getNeighborOffsets();
+		points = board.getPoints();
+		int stride = board.getBoardSize() + 2;
+		int area = stride * stride;
+		owner = new byte[area];
+		regionPoints = new int[area];
+		regionStart = new int[area + 1];
+		regionHealthy = new boolean[area];
+		pairChain = new int[area * 4];
+		pairVital = new boolean[area * 4];
+		pairStart = new int[area + 1];
+		chains = new int[area];
+		chainAlive = new boolean[area];
+		vitalCount = new int[area];
+		chainRegion = new int[area];
+		chainLastLiberty = new int[area];
+		chainLiberties = new int[area];
+		stack = new int[area];
+		visited = new int[area];
+	}
+
+	/**
+	 * Forgets the results of earlier analyses
+	 */
+	void clear(){
+		Arrays.fill(owner, FastBoard.EMPTY);
+	}
+
+	/**
+	 * @param point		an on board point
+	 * @return			the color whose pass alive chain or territory the point is part of, or EMPTY
+	 */
+	byte getOwner(int point){
+		return owner[point];
+	}
+
+	/**
+	 * Marks the stones of every pass alive chain of the color, and every point of the vital regions they
+	 * enclose, as owned by the color
+	 * @param c		the color to analyze
+	 */
+	void analyze(byte c){
+		int regionCount = findRegions(c);
+		int chainCount = 0;
+		for (int p : points){
+			if (board.getColor(p) == c && board.getGroup(p) == p){
+				chains[chainCount++] = p;
+				chainAlive[p] = true;
+				vitalCount[p] = 0;
+				chainRegion[p] = -1;
+			}
+		}
+		for (int r = 0; r<regionCount; r++){
+			findBorderingChains(c, r);
+		}
+
+		boolean changed = true;
+		while (changed){
+			changed = false;
+			for (int i = 0; i<chainCount; i++){
+				int chain = chains[i];
+				if (chainAlive[chain] && vitalCount[chain] < 2){
+					chainAlive[chain] = false;
+					changed = true;
+				}
+			}
+			if (!changed){
+				break;
+			}
+			for (int r = 0; r<regionCount; r++){
+				if (regionHealthy[r] && bordersDeadChain(r)){
+					regionHealthy[r] = false;
+					for (int i = pairStart[r]; i<pairStart[r + 1]; i++){
+						if (pairVital[i]){
+							vitalCount[pairChain[i]]--;
+						}
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i<chainCount; i++){
+			int chain = chains[i];
+			if (chainAlive[chain]){
+				int stone = chain;
+				do {
+					owner[stone] = c;
+					stone = board.getNextStone(stone);
+				} while (stone != chain);
+			}
+		}
+		//a healthy region only borders living chains, it is territory if it is vital to one of them
+		for (int r = 0; r<regionCount; r++){
+			if (regionHealthy[r] && isVital(r)){
+				for (int i = regionStart[r]; i<regionStart[r + 1]; i++){
+					owner[regionPoints[i]] = c;
+				}
+			}
+		}
+	}
+
+	//flood fills the areas without stones of the color, returning the number of regions
+	private int findRegions(byte c){
+		int id = ++visitedId;
+		int regionCount = 0;
+		int total = 0;
+		for (int p : points){
+			if (board.getColor(p) == c || visited[p] == id){
+				continue;
+			}
+			regionStart[regionCount] = total;
+			regionHealthy[regionCount] = true;
+			int top = 0;
+			stack[top++] = p;
+			visited[p] = id;
+			while (top > 0){
+				int point = stack[--top];
+				regionPoints[total++] = point;
+				for (int offset : offsets){
+					int neighbor = point + offset;
+					byte neighborColor = board.getColor(neighbor);
+					if (neighborColor != c && neighborColor != FastBoard.BORDER && visited[neighbor] != id){
+						visited[neighbor] = id;
+						stack[top++] = neighbor;
+					}
+				}
+			}
+			regionCount++;
+		}
+		regionStart[regionCount] = total;
+		return regionCount;
+	}
+
+	//lists the chains around the region and whether the region is vital to each of them
+	private void findBorderingChains(byte c, int r){
+		int start = r == 0 ? 0 : pairStart[r];
+		int pairs = start;
+		int empties = 0;
+		for (int i = regionStart[r]; i<regionStart[r + 1]; i++){
+			int point = regionPoints[i];
+			boolean empty = board.getColor(point) == FastBoard.EMPTY;
+			if (empty){
+				empties++;
+			}
+			for (int offset : offsets){
+				int neighbor = point + offset;
+				if (board.getColor(neighbor) != c){
+					continue;
+				}
+				int chain = board.getGroup(neighbor);
+				if (chainRegion[chain] != r){
+					chainRegion[chain] = r;
+					chainLastLiberty[chain] = FastBoard.NO_POINT;
+					chainLiberties[chain] = 0;
+					pairChain[pairs++] = chain;
+				}
+				if (empty && chainLastLiberty[chain] != point){
+					chainLastLiberty[chain] = point;
+					chainLiberties[chain]++;
+				}
+			}
+		}
+		pairStart[r] = start;
+		pairStart[r + 1] = pairs;
+		for (int i = start; i<pairs; i++){
+			pairVital[i] = chainLiberties[pairChain[i]] == empties;
+			if (pairVital[i]){
+				vitalCount[pairChain[i]]++;
+			}
+		}
+	}
+
+	private boolean bordersDeadChain(int r){
+		for (int i = pairStart[r]; i<pairStart[r + 1]; i++){
+			if (!chainAlive[pairChain[i]]){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isVital(int r){
+		for (int i = pairStart[r]; i<pairStart[r + 1]; i++){
+			if (pairVital[i]){
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,157 @@
+package game.model;
+
+/**
+ * Table of the 3x3 shapes around an empty point that make a good move there, after the hane, cut and
+ * edge patterns of MoGo. A shape is coded as the colors of the eight surrounding points, two bits each,
+ * see {@link FastBoard#getPattern(int)}, so looking a point up is a single array access.
+ *
+ * The patterns are written for one color and one orientation. Building the table adds every rotation,
+ * reflection and the colors swapped, so the table holds every code that matches any of them.
+ */
+public final class Pattern3x3 {
+
+	/*
+	 * The point in the middle is the empty point being looked at. X and O are stones of each color, '.' is
+	 * empty, ' ' is off the board, x is anything but X, o is anything but O and ? is anything
+	 */
+	private static final String[][] PATTERNS = {
+		//hane, enclosing
+		{"XOX",
+		 "...",
+		 "???"},
+		//hane, not cutting
+		{"XO.",
+		 "...",
+		 "?.?"},
+		//hane, magari
+		{"XO?",
+		 "X..",
+		 "x.?"},
+		//diagonal attachment
+		{".O.",
+		 "X..",
+		 "..."},
+		//unprotected cut
+		{"XO?",
+		 "O.o",
+		 "?o?"},
+		//peeped cut
+		{"XO?",
+		 "O.X",
+		 "???"},
+		//cut across
+		{"?X?",
+		 "O.O",
+		 "ooo"},
+		//keima cut
+		{"OX?",
+		 "o.O",
+		 "???"},
+		//edge, chase
+		{"X.?",
+		 "O.?",
+		 "   "},
+		//edge, block a cut
+		{"OX?",
+		 "X.O",
+		 "   "},
+		//edge, block a connection
+		{"?X?",
+		 "x.O",
+		 "   "},
+		//edge, sagari
+		{"?XO",
+		 "x.x",
+		 "   "},
+		//edge, cut
+		{"?OX",
+		 "X.O",
+		 "   "},
+	};
+
+	private static final boolean[] TABLE = new boolean[1 << 16];
+	static {
+		for (String[] rows : PATTERNS){
+			char[] cells = (rows[0] + rows[1] + rows[2]).toCharArray();
+			for (int rotation = 0; rotation<4; rotation++){
+				for (int flip = 0; flip<2; flip++){
+					for (int swap = 0; swap<2; swap++){
+						add(cells, 0, 0);
+						cells = swapColors(cells);
+					}
+					cells = flip(cells);
+				}
+				cells = rotate(cells);
+			}
+		}
+	}
+
+	private Pattern3x3(){
+	}
+
+	/**
+	 * @param code	the pattern code of an empty point
+	 * @return		whether the shape around the point is one of the patterns
+	 */
+	public static boolean matches(int code){
+		return TABLE[code];
+	}
+
+	//marks every code the cells match, going through the eight surrounding cells one at a time
+	private static void add(char[] cells, int neighbor, int code){
+		if (neighbor == 8){
+			TABLE[code] = true;
+			return;
+		}
+		//cells are in row order with the middle at 4, the codes skip it
+		char cell = cells[neighbor < 4 ? neighbor : neighbor + 1];
+		for (byte c = FastBoard.EMPTY; c <= FastBoard.BORDER; c++){
+			if (allows(cell, c)){
+				add(cells, neighbor + 1, code | c << 2 * neighbor);
+			}
+		}
+	}
+
+	private static boolean allows(char cell, byte c){
+		switch (cell){
+		case 'X': return c == FastBoard.BLACK;
+		case 'O': return c == FastBoard.WHITE;
+		case '.': return c == FastBoard.EMPTY;
+		case ' ': return c == FastBoard.BORDER;
+		case 'x': return c != FastBoard.BLACK;
+		case 'o': return c != FastBoard.WHITE;
+		default: return true;
+		}
+	}
+
+	//turns the square a quarter turn
+	private static char[] rotate(char[] cells){
+		char[] rotated = new char[9];
+		for (int row = 0; row<3; row++){
+			for (int column = 0; column<3; column++){
+				rotated[row * 3 + column] = cells[(2 - column) * 3 + row];
+			}
+		}
+		return rotated;
+	}
+
+	//mirrors the square left to right
+	private static char[] flip(char[] cells){
+		char[] flipped = new char[9];
+		for (int row = 0; row<3; row++){
+			for (int column = 0; column<3; column++){
+				flipped[row * 3 + column] = cells[row * 3 + 2 - column];
+			}
+		}
+		return flipped;
+	}
+
+	private static char[] swapColors(char[] cells){
+		char[] swapped = new char[9];
+		for (int i = 0; i<9; i++){
+			char cell = cells[i];
+			swapped[i] = cell == 'X' ? 'O' : cell == 'O' ? 'X' : cell == 'x' ? 'o' : cell == 'o' ? 'x' : cell;
+		}
+		return swapped;
+	}
+}
@@ -0,0 +1,81 @@
+package game.model;
+
+import java.util.Arrays;
+
+/**
+ * A set of board points with O(1) add, remove, membership and access by position, so a uniformly random
+ * member can be picked with a single random index. Points are kept densely packed in an array, removing a
+ * point moves the last point into its place. Only the board that owns the set can change it, everybody
+ * else gets a read only view without any copying.
+ */
+public class PointSet implements Cloneable {
+
+	private int[] points;
+	//position of every point in points, or -1 when it is not in the set
+	private int[] index;
+	private int size;
+
+	/**
+	 * @param area	one more than the largest point that can be stored
+	 */
+	PointSet(int area){
+		points = new int[area];
+		index = new int[area];
+		Arrays.fill(index, -1);
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	public boolean contains(int point){
+		return index[point] >= 0;
+	}
+
+	/**
+	 * @param i		a position between 0 and size - 1
+	 * @return		the point at that position, the order changes as points are added and removed
+	 */
+	public int get(int i){
+		return points[i];
+	}
+
+	void add(int point){
+		if (index[point] < 0){
+			index[point] = size;
+			points[size++] = point;
+		}
+	}
+
+	void remove(int point){
+		int i = index[point];
+		if (i >= 0){
+			int last = points[--size];
+			points[i] = last;
+			index[last] = i;
+			index[point] = -1;
+		}
+	}
+
+	void copyFrom(PointSet other){
+		System.arraycopy(other.points, 0, points, 0, other.size);
+		System.arraycopy(other.index, 0, index, 0, index.length);
+		size = other.size;
+	}
+
+	@Override
+	public PointSet clone() {
+		try {
+			PointSet set = (PointSet) super.clone();
+			set.points = points.clone();
+			set.index = index.clone();
+			return set;
+		} catch (CloneNotSupportedException e) {
+			return null;
+		}
+	}
+}
@@ -50,6 +50,14 @@ public class StoneGroup {
 	public void setLiberties(Set<Intersection> liberties) {
 		this.liberties = liberties;
 	}
+	
+	public void addLiberty(Intersection liberty) {
+		liberties.add(liberty);
+	}
+	
+	public void removeLiberty(Intersection liberty) {
+		liberties.remove(liberty);
+	}
 
 	public void removeSurroundingStoneGroups(StoneGroup surroundingStoneGroup) {
 		surroundingStoneGroups.remove(surroundingStoneGroup);
@@ -73,7 +81,8 @@ public class StoneGroup {
 	
 	/**
 	 * Combines two StoneGroups together. The smaller group (fewer stones) is "destroyed",
-	 * and all the stones that were in the smaller group are put into the larger group
+	 * and all the stones that were in the smaller group are put into the larger group. Liberties
+	 * and surrounding groups of the smaller group are carried over to the larger group
 	 * @param otherGroup	the group to be merged
 	 * @return				the group that now holds all the stones
 	 */
@@ -84,7 +93,15 @@ public class StoneGroup {
 			stone.setGroup(largerGroup);
 			largerGroup.add(stone);
 		}
+		largerGroup.liberties.addAll(smallerGroup.liberties);
+		for (StoneGroup surrounding : smallerGroup.surroundingStoneGroups){
+			surrounding.removeSurroundingStoneGroups(smallerGroup);
+			surrounding.addSurroundingStoneGroups(largerGroup);
+			largerGroup.addSurroundingStoneGroups(surrounding);
+		}
 		smallerGroup.stones.clear();
+		smallerGroup.liberties.clear();
+		smallerGroup.surroundingStoneGroups.clear();
 		return largerGroup;
 	}
 
@@ -0,0 +1,64 @@
+package game.player;
+
+import app.GameState;
+import enums.MoveType;
+import enums.PlayerColor;
+import game.model.FastBoard;
+import game.model.Move;
+
+/**
+ * Prior made of a few local features of a move: capturing and saving stones count for it, playing into
+ * atari and playing on the edge count against it, and answering near the last move counts a little for it.
+ * Every feature only looks at the point and its neighbors.
+ */
+public class FeatureMovePrior implements MovePrior {
+
+	private static final float CAPTURE = 4;
+	private static final float SAVE = 2;
+	private static final float SELF_ATARI = -4;
+	//the same weight the edge penalty in selection always had
+	private static final float EDGE = -6.1f;
+	private static final float NEAR_LAST_MOVE = 1;
+	//how far from the last move, in both directions, still counts as near
+	private static final int NEAR = 2;
+
+	@Override
+	public float getBias(GameState state, int point, PlayerColor player) {
+		FastBoard board = state.getBoard();
+		byte c = FastBoard.stoneColor(player);
+		byte enemy = FastBoard.opponent(c);
+		float bias = 0;
+		boolean captures = false;
+		boolean saves = false;
+		for (int offset : board.getNeighborOffsets()){
+			int neighbor = point + offset;
+			byte neighborColor = board.getColor(neighbor);
+			if ((neighborColor == enemy || neighborColor == c) && board.getAtariLiberty(neighbor) == point){
+				captures |= neighborColor == enemy;
+				saves |= neighborColor == c;
+			}
+		}
+		if (captures){
+			bias += CAPTURE;
+		} else if (board.isSelfAtari(point, player)){
+			bias += SELF_ATARI;
+		} else if (saves){
+			bias += SAVE;
+		}
+
+		int size = board.getBoardSize();
+		int x = board.getX(point);
+		int y = board.getY(point);
+		if (x == 0 || y == 0 || x == size-1 || y == size-1){
+			bias += EDGE;
+		}
+		Move last = state.getLastMove();
+		if (last != null && last.getType().equals(MoveType.NORMAL)){
+			int lastPoint = board.point(last);
+			if (Math.abs(board.getX(lastPoint) - x) <= NEAR && Math.abs(board.getY(lastPoint) - y) <= NEAR){
+				bias += NEAR_LAST_MOVE;
+			}
+		}
+		return bias;
+	}
+}
@@ -1,241 +1,1083 @@
 package game.player;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Random;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import enums.MoveType;
 import enums.PlayerColor;
+import enums.SearchMode;
 import exception.MoveException;
 import app.GameState;
-import game.model.Board;
-import game.model.Intersection;
+import game.model.FastBoard;
 import game.model.Move;
-import game.model.StoneGroup;
+import game.model.Pattern3x3;
+import game.model.PointSet;
 
 /**
- * Go Player using non-parallel Monte Carlo Tree Search with a default of 10k moves
+ * Go Player using Monte Carlo Tree Search with a default of 10k iterations per move. The search can run
+ * on several threads, each playing its rollouts on its own copy of the game state. The threads either
+ * share one tree (see {@link MCTSTree} for how they stay out of each other's way), each grow their own
+ * tree, in which case the statistics of the root children are summed to pick the move, or play a batch
+ * of rollouts from the same new node, see {@link SearchMode}. The shared tree can also share statistics
+ * between transpositions, see {@link #setTranspositionTableSize(int)}, and keep growing while the other
+ * player thinks, see {@link #setPondering(boolean)}. All the randomness of a search comes from one seed,
+ * see {@link #setSeed(long)}. Positions in an {@link OpeningBook} are answered from the book without searching,
+ * and a {@link StatisticsCache} carries what was learned near the root over to later games
  * @author calebj
  */
 public class MCTSComputerPlayer extends Player {
 
-	private static int ITERATIONS_PER_MOVE = 10000;
-	private Random random;
+	private static final int DEFAULT_ITERATIONS_PER_MOVE = 10000;
+	//random legal points tried in a rollout before scanning for a playable one
+	private static final int RANDOM_MOVE_SAMPLES = 8;
+	//rollout limits that scale with the board, per on board point, see setMaxRolloutMoves and setMercyMargin
+	private static final int DEFAULT_ROLLOUT_MOVES_PER_POINT = 2;
+	private static final int DEFAULT_MERCY_POINTS_PER_MARGIN = 4;
+	//visits at which a node's AMAF statistics still count for about a third, see MCTSTree
+	private static final int DEFAULT_RAVE_EQUIVALENCE = 1000;
+	//root children whose own children are cached after a search, the most visited ones
+	private static final int CACHED_CHILDREN = 4;
+	//cached visits a new root starts with are at most this part of the budget, so the search still decides
+	private static final int WARM_START_SHARE = 2;
+	private int iterationsPerMove;
+	private int threads;
+	private SearchMode searchMode = SearchMode.SHARED_TREE;
+	private int raveEquivalence;
+	private MovePrior movePrior;
+	//whether rollouts play 3x3 patterns next to the last move
+	private boolean patternRollouts;
+	//moves after which a rollout is scored as it is, and the stone lead that ends it, 0 for no limit and
+	//-1 to scale with the board. Off unless set, since both change what a rollout returns
+	private int maxRolloutMoves;
+	private int mercyMargin;
+	//the seed set last, and the source every search splits the random sources of its workers off, so the
+	//searches after a seed is set always get the same ones in the same order
+	private long seed;
+	private SplittableRandom seeds;
+	//null unless set
+	private OpeningBook openingBook;
+	private StatisticsCache statisticsCache;
+	private SearchWorker[] workers;
+	//runs the workers when there is more than one, created the first time it is needed
+	private ExecutorService executor;
+	private int executorThreads;
+	//plays the rollouts of a leaf parallel search, one task per worker
+	private ForkJoinPool rolloutPool;
+	private List<Callable<Void>> rolloutTasks;
 	
-	//Other person's move
-	private MCTSNode root;
+	//rollouts played by the last search and how long it took
+	private int lastPlayouts;
+	private long lastSearchNanos;
+	//moves played in the rollouts of the last search, and how many rollouts each limit ended
+	private long lastRolloutMoves;
+	private int lastLengthCutoffs;
+	private int lastMercyCutoffs;
+	//the root moves of the last search, most visited first
+	private List<MoveStatistics> lastStatistics = Collections.emptyList();
+	
+	//the shared tree, rooted at the position before the other person's move, and the tree the part that
+	//is kept gets copied into when the search moves on
+	private MCTSTree tree = new MCTSTree();
+	private MCTSTree spareTree = new MCTSTree();
+	//shared by both trees, null unless enabled
+	private TranspositionTable transpositions;
+	
+	private boolean pondering;
+	//moves the tree on past our move and ponders, after the move is returned. Its budget is what stops
+	//it, and its result is waited for before the tree is touched again, so the tree only ever belongs to
+	//one thread at a time
+	private ExecutorService background;
+	private Future<Void> backgroundResult;
+	private AtomicInteger ponderRemaining;
+	//the state after our last move
+	private GameState movedState;
 	
 	public MCTSComputerPlayer(PlayerColor color) {
-		super(color);
-		random = new Random();
+		this(color, DEFAULT_ITERATIONS_PER_MOVE);
 	}
 	
 	public MCTSComputerPlayer(PlayerColor color, Integer iterations){
-		this(color);
-		ITERATIONS_PER_MOVE = iterations;
+		this(color, iterations, 1);
+	}
+	
+	/**
+	 * @param color			the color to play
+	 * @param iterations	rollouts per move, shared between all threads
+	 * @param threads		number of threads searching the tree
+	 */
+	public MCTSComputerPlayer(PlayerColor color, Integer iterations, int threads){
+		super(color);
+		iterationsPerMove = iterations;
+		setThreads(threads);
+		setRaveEquivalence(DEFAULT_RAVE_EQUIVALENCE);
+		setMovePrior(new FeatureMovePrior());
+		setSeed(new SplittableRandom().nextLong());
+	}
+	
+	/**
+	 * @param threads	number of threads searching the tree, used from the next move on
+	 */
+	public void setThreads(int threads) {
+		stopPondering();
+		this.threads = Math.max(1, threads);
+	}
+	
+	public int getThreads() {
+		return threads;
+	}
+	
+	/**
+	 * @param searchMode	how the search threads divide the work, used from the next move on
+	 */
+	public void setSearchMode(SearchMode searchMode) {
+		stopPondering();
+		this.searchMode = searchMode;
+	}
+	
+	public SearchMode getSearchMode() {
+		return searchMode;
+	}
+	
+	/**
+	 * @param k		how long the all moves as first statistics of a node count in selection, see
+	 * 				{@link MCTSTree#setRaveEquivalence(int)}, 0 to use plain UCT
+	 */
+	public void setRaveEquivalence(int k) {
+		stopPondering();
+		raveEquivalence = Math.max(0, k);
+		tree.setRaveEquivalence(raveEquivalence);
+		spareTree.setRaveEquivalence(raveEquivalence);
+	}
+	
+	public int getRaveEquivalence() {
+		return raveEquivalence;
+	}
+	
+	/**
+	 * @param movePrior		the prior knowledge new tree nodes start with, see {@link MovePrior}, or null for
+	 * 						none. Used from the next move on
+	 */
+	public void setMovePrior(MovePrior movePrior) {
+		stopPondering();
+		this.movePrior = movePrior;
+		tree.setMovePrior(movePrior);
+		spareTree.setMovePrior(movePrior);
+	}
+	
+	public MovePrior getMovePrior() {
+		return movePrior;
+	}
+	
+	/**
+	 * @param patternRollouts	whether rollouts answer the last move with a good 3x3 shape next to it, see
+	 * 							{@link Pattern3x3}, after saving and capturing stones
+	 */
+	public void setPatternRollouts(boolean patternRollouts) {
+		stopPondering();
+		this.patternRollouts = patternRollouts;
+	}
+	
+	public boolean isPatternRollouts() {
+		return patternRollouts;
+	}
+	
+	/**
+	 * Lets nodes of the shared tree that reach the same position share their statistics. Root parallel
+	 * searches don't use it. Starts a new tree
+	 * @param entries	number of positions the table holds, 0 to turn it off
+	 */
+	public void setTranspositionTableSize(int entries) {
+		stopPondering();
+		transpositions = entries > 0 ? new TranspositionTable(entries) : null;
+		tree.setTranspositionTable(transpositions);
+		spareTree.setTranspositionTable(transpositions);
+	}
+	
+	/**
+	 * @return	number of positions the transposition table holds, 0 if it is off
+	 */
+	public int getTranspositionTableSize() {
+		return transpositions == null ? 0 : transpositions.getCapacity();
+	}
+	
+	/**
+	 * Keeps searching the tree on a background thread after a move is returned, for up to one more move's
+	 * budget, until the next call to {@link #getMove(GameState)}. The part of that search below the other
+	 * player's move is kept, and its visits count towards the budget of the next move. Root parallel
+	 * searches keep no tree and never ponder
+	 * @param pondering		whether to search on the other player's time
+	 */
+	public void setPondering(boolean pondering) {
+		if (!pondering){
+			stopPondering();
+		}
+		this.pondering = pondering;
+	}
+	
+	public boolean isPondering() {
+		return pondering;
+	}
+	
+	/**
+	 * Stops searching on the other player's time, if a search is running, and waits for it and for the
+	 * tree to be moved on past the last move. Should be called when the game is over
+	 */
+	public void stopPondering() {
+		if (backgroundResult == null){
+			return;
+		}
+		//the workers stop at the end of their current iteration
+		ponderRemaining.set(0);
+		awaitBackground();
+	}
+	
+	//waits for the background task to finish, even if interrupted, since until then it may still be
+	//writing the tree. The interrupt is kept for the caller
+	void awaitBackground() {
+		if (backgroundResult == null){
+			return;
+		}
+		boolean interrupted = false;
+		while (true){
+			try {
+				backgroundResult.get();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException e) {
+				//the tree may be half updated, start over
+				tree.clear();
+				break;
+			}
+		}
+		backgroundResult = null;
+		if (interrupted){
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * @param maxRolloutMoves	moves after which a rollout stops and the board is scored as it is, 0 for no
+	 * 							limit, the default, or -1 for twice the number of points on the board
+	 */
+	public void setMaxRolloutMoves(int maxRolloutMoves) {
+		stopPondering();
+		this.maxRolloutMoves = maxRolloutMoves;
+	}
+	
+	public int getMaxRolloutMoves() {
+		return maxRolloutMoves;
+	}
+	
+	/**
+	 * @param mercyMargin	stones on the board and captures one side gains over the other during a rollout that
+	 * 						end it as a win for that side, 0 to always play on, the default, or -1 for a quarter
+	 * 						of the points on the board
+	 */
+	public void setMercyMargin(int mercyMargin) {
+		stopPondering();
+		this.mercyMargin = mercyMargin;
+	}
+	
+	public int getMercyMargin() {
+		return mercyMargin;
+	}
+	
+	/**
+	 * Seeds the random sources of the searches from here on. Searches with one thread or leaf parallel
+	 * searches, without pondering, play the same rollouts and return the same moves every time they start
+	 * from the same seed and the same game. With more threads on the shared tree or root parallel, or when
+	 * pondering, which iterations run when depends on timing, so the seed only fixes each thread's own
+	 * sequence
+	 * @param seed	the master seed
+	 */
+	public void setSeed(long seed) {
+		stopPondering();
+		this.seed = seed;
+		seeds = new SplittableRandom(seed);
+	}
+	
+	/**
+	 * @return	the seed set last, or the one picked when the player was created, to replay a game with
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * @param openingBook	the book to play from while the game is in it, or null to always search
+	 */
+	public void setOpeningBook(OpeningBook openingBook) {
+		this.openingBook = openingBook;
+	}
+	
+	public OpeningBook getOpeningBook() {
+		return openingBook;
+	}
+	
+	/**
+	 * Starts every new shared tree root from the statistics cached for its position, and caches the
+	 * statistics of the root and its most visited children after every search. Root parallel searches
+	 * don't use it
+	 * @param statisticsCache	the cache, which may be shared with other players, or null for none
+	 */
+	public void setStatisticsCache(StatisticsCache statisticsCache) {
+		stopPondering();
+		this.statisticsCache = statisticsCache;
+	}
+	
+	public StatisticsCache getStatisticsCache() {
+		return statisticsCache;
+	}
+	
+	/**
+	 * Forgets the tree kept from the last move, so the next search starts from scratch. Must be called
+	 * before the player is given a position that does not follow from the last one, like a new game
+	 */
+	public void newGame() {
+		stopPondering();
+		tree.clear();
+	}
+	
+	/**
+	 * @return	rollouts per second of the last search, over all threads
+	 */
+	public double getPlayoutsPerSecond() {
+		return lastSearchNanos == 0 ? 0 : lastPlayouts * 1e9 / lastSearchNanos;
+	}
+	
+	/**
+	 * @return	rollouts played by the last search, over all threads
+	 */
+	public int getLastPlayouts() {
+		return lastPlayouts;
+	}
+	
+	/**
+	 * @return	moves per rollout in the last search
+	 */
+	public double getAverageRolloutLength() {
+		return lastPlayouts == 0 ? 0 : (double) lastRolloutMoves / lastPlayouts;
+	}
+	
+	/**
+	 * @return	rollouts of the last search stopped by the move limit, see {@link #setMaxRolloutMoves(int)}
+	 */
+	public int getLengthCutoffs() {
+		return lastLengthCutoffs;
+	}
+	
+	/**
+	 * @return	rollouts of the last search ended by the mercy rule, see {@link #setMercyMargin(int)}
+	 */
+	public int getMercyCutoffs() {
+		return lastMercyCutoffs;
+	}
+	
+	/**
+	 * @return	every move tried at the root of the last search, summed over all threads, most visited first.
+	 * 			Empty if the last move came from the opening book
+	 */
+	public List<MoveStatistics> getLastSearchStatistics() {
+		return lastStatistics;
 	}
 
 	@Override
 	public Move getMove(GameState state) {
 		
+		stopPondering();
 		if (state.getLastMoved().equals(color)){
 			//we shouldn't have been called, it's not our turn
 			return Move.getMoveInstance(MoveType.PASS, 0, 0);
 		}
+		if (openingBook != null){
+			Move bookMove = openingBook.getMove(state);
+			if (bookMove != null){
+				//the tree no longer follows the game
+				tree.clear();
+				lastStatistics = Collections.emptyList();
+				return bookMove;
+			}
+		}
 		
+		boolean sharedTree = searchMode != SearchMode.ROOT_PARALLEL;
 		Move lastMove = state.getLastMove();
-		if (root != null && lastMove != null && !lastMove.getType().equals(MoveType.PASS)){
-			pruneTree(lastMove, state);
+		//visits searched on our time or the other player's, a warm start from the cache does not count
+		int keptVisits = 0;
+		if (!sharedTree){
+			//every worker starts a tree of its own
+			tree.clear();
+		} else if (lastMove != null && pruneTree(lastMove, state)){
+			keptVisits = tree.getVisits(tree.getRoot());
 		} else {
-			root = new MCTSNode(null, null, state);
+			tree.createRoot(state);
+			warmStart(state);
 		}
 		
 		
 		 try {
-			Move move = UCT(state, ITERATIONS_PER_MOVE);
-			pruneTree(move, state);
+			int iterations = iterationsPerMove;
+			if (pondering){
+				//only the part of the budget the kept tree has not used yet
+				iterations = Math.max(1, iterationsPerMove - keptVisits);
+			}
+			Move move = UCT(state, iterations);
+			if (sharedTree){
+				cacheStatistics(state);
+				moveOn(state, move);
+			}
 			return move;
 		} catch (MoveException e) {
 			return Move.getMoveInstance(MoveType.PASS, 0, 0);
 		}
 	}
 	
-	//performs basic MCTS with Upper Confidence Bound for Trees
+	//performs basic MCTS with Upper Confidence Bound for Trees, with every worker taking iterations
+	//from the same budget until it runs out
 	private Move UCT(GameState rootstate, int iterationsPerMove) throws MoveException {
-		for (int i=0; i<iterationsPerMove; i++){
-			MCTSNode node = root;
-			GameState state = rootstate.clone();
-			
-			//Select
-			while (node.getUntriedMoves().isEmpty() && !node.getChildren().isEmpty()){
-				node = node.UCTSelectChild();
-				state.addMove(node.getMove());
+		AtomicInteger remaining = new AtomicInteger(iterationsPerMove);
+		long start = System.nanoTime();
+		search(rootstate, remaining);
+		lastSearchNanos = System.nanoTime() - start;
+		lastPlayouts = iterationsPerMove - Math.max(0, remaining.get());
+		lastRolloutMoves = 0;
+		lastLengthCutoffs = 0;
+		lastMercyCutoffs = 0;
+		for (SearchWorker worker : workers){
+			lastRolloutMoves += worker.rolloutMoves;
+			lastLengthCutoffs += worker.lengthCutoffs;
+			lastMercyCutoffs += worker.mercyCutoffs;
+		}
+		lastStatistics = mergeRootChildren(rootstate.getBoard());
+		return lastStatistics.isEmpty() ? Move.getMoveInstance(MoveType.PASS, 0, 0) : lastStatistics.get(0).getMove();
+	}
+	
+	//runs the workers from the state until the budget runs out, on the shared tree if it has a root
+	private void search(GameState rootstate, AtomicInteger remaining) throws MoveException {
+		if (workers == null || workers.length != threads){
+			workers = new SearchWorker[threads];
+			for (int i = 0; i<threads; i++){
+				workers[i] = new SearchWorker();
 			}
+		}
+		//every iteration adds at most one node and generates the moves of at most one, so the trees never
+		//have to grow during the search. The pool of moves only takes memory for the moves generated
+		int nodes = remaining.get() + 1;
+		//every point and a pass
+		int moves = nodes * (rootstate.getBoard().getPoints().length + 1);
+		boolean sharedTree = tree.getRoot() != MCTSTree.NO_NODE;
+		if (sharedTree){
+			tree.ensureCapacity(nodes, moves);
+			if (transpositions != null){
+				transpositions.nextGeneration();
+			}
+		}
+		for (SearchWorker worker : workers){
+			worker.reset(rootstate, remaining, sharedTree ? tree : worker.ownTree(rootstate, nodes, moves), seeds.split());
+		}
+		if (threads == 1){
+			workers[0].call();
+		} else if (searchMode == SearchMode.LEAF_PARALLEL){
+			searchLeafParallel(remaining);
+		} else {
+			runInParallel();
+		}
+	}
+	
+	//moves the tree on to the position after our move and, when pondering, searches it, all in the
+	//background so the move can be returned right away and the next search starts from a warm tree
+	private void moveOn(GameState state, final Move move) {
+		if (movedState == null || movedState.getBoard().getBoardSize() != state.getBoard().getBoardSize()){
+			movedState = state.clone();
+		} else {
+			movedState.copyFrom(state);
+		}
+		try {
+			movedState.addMove(move);
+		} catch (MoveException e) {
+			tree.clear();
+			return;
+		}
+		if (background == null){
+			background = Executors.newSingleThreadExecutor(new ThreadFactory(){
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "mcts-background");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		final AtomicInteger remaining = new AtomicInteger(pondering ? iterationsPerMove : 0);
+		ponderRemaining = remaining;
+		backgroundResult = background.submit(new Callable<Void>(){
+			@Override
+			public Void call() throws MoveException {
+				if (!pruneTree(move, movedState)){
+					tree.createRoot(movedState);
+				}
+				if (remaining.get() > 0){
+					search(movedState, remaining);
+				}
+				return null;
+			}
+		});
+	}
+	
+	//adds the root children cached for the state to the new root, scaled down to fit the budget
+	private void warmStart(GameState state) {
+		if (statisticsCache == null){
+			return;
+		}
+		try {
+			List<MoveStatistics> cached = statisticsCache.load(state);
+			long cachedVisits = 0;
+			for (MoveStatistics move : cached){
+				cachedVisits += move.getVisits();
+			}
+			if (cachedVisits == 0){
+				return;
+			}
+			double scale = Math.min(1, iterationsPerMove / (double) (WARM_START_SHARE * cachedVisits));
+			FastBoard board = state.getBoard();
+			tree.ensureCapacity(cached.size(), board.getPoints().length + 1);
+			GameState scratch = state.clone();
+			SplittableRandom random = seeds.split();
+			for (MoveStatistics move : cached){
+				int visits = (int) (move.getVisits() * scale);
+				if (visits > 0){
+					tree.expandWith(tree.getRoot(), scratch, board.point(move.getMove()), visits, (float) (move.getWins() * scale), random);
+				}
+			}
+		} catch (IOException | MoveException e) {
+			//the cache only saves work, search without it
+		}
+	}
+	
+	//stores the statistics of the root and of its most visited children
+	private void cacheStatistics(GameState state) {
+		if (statisticsCache == null){
+			return;
+		}
+		try {
+			statisticsCache.store(state, lastStatistics);
+			FastBoard board = state.getBoard();
+			for (int i = 0; i<CACHED_CHILDREN && i<lastStatistics.size(); i++){
+				Move move = lastStatistics.get(i).getMove();
+				int child = tree.findChild(tree.getRoot(), toPoint(board, move));
+				if (child == MCTSTree.NO_NODE || tree.getFirstChild(child) == MCTSTree.NO_NODE){
+					continue;
+				}
+				GameState next = state.clone();
+				next.addMove(move);
+				List<MoveStatistics> statistics = new ArrayList<>();
+				for (int grandchild = tree.getFirstChild(child); grandchild != MCTSTree.NO_NODE; grandchild = tree.getNextSibling(grandchild)){
+					statistics.add(new MoveStatistics(toMove(board, tree.getMove(grandchild)), tree.getVisits(grandchild), tree.getWins(grandchild)));
+				}
+				statisticsCache.store(next, statistics);
+			}
+		} catch (IOException | MoveException e) {
+			//the cache only saves work, play on without it
+		}
+	}
+	
+	//sums the visits and wins of the root children of the shared tree, or of every worker's tree, and sorts
+	//them by visits, then wins
+	private List<MoveStatistics> mergeRootChildren(FastBoard board) {
+		//indexed by point + 1, so a pass is at 0
+		int size = board.getBoardSize();
+		int[] visits = new int[board.point(size - 1, size - 1) + 2];
+		float[] wins = new float[visits.length];
+		boolean[] tried = new boolean[visits.length];
+		for (SearchWorker worker : workers){
+			MCTSTree workerTree = worker.tree;
+			for (int child = workerTree.getFirstChild(workerTree.getRoot()); child != MCTSTree.NO_NODE; child = workerTree.getNextSibling(child)){
+				visits[workerTree.getMove(child) + 1] += workerTree.getVisits(child);
+				wins[workerTree.getMove(child) + 1] += workerTree.getWins(child);
+				tried[workerTree.getMove(child) + 1] = true;
+			}
+			if (workerTree == tree){
+				break;
+			}
+		}
+		List<MoveStatistics> statistics = new ArrayList<>();
+		for (int i = 0; i<visits.length; i++){
+			if (tried[i]){
+				statistics.add(new MoveStatistics(toMove(board, i - 1), visits[i], wins[i]));
+			}
+		}
+		Collections.sort(statistics, new Comparator<MoveStatistics>(){
+			@Override
+			public int compare(MoveStatistics a, MoveStatistics b) {
+				if (a.getVisits() != b.getVisits()){
+					return Integer.compare(b.getVisits(), a.getVisits());
+				}
+				return Float.compare(b.getWins(), a.getWins());
+			}
+		});
+		return statistics;
+	}
+
+	//adds the results of rollouts from the node to it and all of its ancestors
+	private static void backpropagate(MCTSTree tree, int node, int playouts, int blackWins) {
+		while (node != MCTSTree.NO_NODE){
+			boolean blackJustMoved = tree.getPlayerJustMoved(node) == FastBoard.BLACK;
+			tree.update(node, blackJustMoved ? blackWins : playouts - blackWins);
+			node = tree.getParent(node);
+		}
+	}
+	
+	//black's stones on the board and the stones black captured, less white's, so a capture counts for the
+	//stones taken as well as the stones left on the board
+	static int blackLead(FastBoard board) {
+		return board.getStoneCount(PlayerColor.BLACK) + board.getStonesCaptures(PlayerColor.BLACK)
+				- board.getStoneCount(PlayerColor.WHITE) - board.getStonesCaptures(PlayerColor.WHITE);
+	}
+	
+	private static Move toMove(FastBoard board, int point) {
+		return point == MCTSTree.PASS ? Move.getMoveInstance(MoveType.PASS, 0, 0) : board.getMove(point);
+	}
+	
+	private static int toPoint(FastBoard board, Move move) {
+		return move.getType().equals(MoveType.PASS) ? MCTSTree.PASS : board.point(move);
+	}
+	
+	//the first worker selects and expands, then every worker plays a rollout from the same new node on the
+	//rollout pool, and the results are backed up together
+	private void searchLeafParallel(AtomicInteger remaining) throws MoveException {
+		if (rolloutPool == null || rolloutPool.getParallelism() != threads){
+			if (rolloutPool != null){
+				rolloutPool.shutdown();
+			}
+			rolloutPool = new ForkJoinPool(threads);
+			rolloutTasks = new ArrayList<>();
+			for (final SearchWorker worker : workers){
+				rolloutTasks.add(new Callable<Void>(){
+					@Override
+					public Void call() throws MoveException {
+						worker.blackWon = worker.rollout();
+						return null;
+					}
+				});
+			}
+		}
+		SearchWorker selector = workers[0];
+		while (remaining.get() > 0 && !Thread.currentThread().isInterrupted()){
+			int batch = Math.min(threads, remaining.getAndAdd(-threads));
+			if (batch <= 0){
+				//stopped in between
+				break;
+			}
+			int leaf = selector.selectAndExpand(batch);
+			for (int i = 1; i<batch; i++){
+				workers[i].scratch.copyFrom(selector.scratch);
+				workers[i].leafTurn = selector.leafTurn;
+			}
+			invokeAll(rolloutPool, rolloutTasks.subList(0, batch));
+			int blackWins = 0;
+			for (int i = 0; i<batch; i++){
+				blackWins += workers[i].blackWon ? 1 : 0;
+				//every rollout played different moves
+				workers[i].updateAmaf(leaf, 1, workers[i].blackWon ? 1 : 0);
+			}
+			backpropagate(tree, leaf, batch, blackWins);
+			selector.rewind(selector.rootTurn);
+		}
+	}
+	
+	private void runInParallel() throws MoveException {
+		if (executor == null || executorThreads != threads){
+			if (executor != null){
+				executor.shutdown();
+			}
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+				@Override
+				public Thread newThread(Runnable r) {
+					//searching must never keep the application from exiting
+					Thread thread = new Thread(r, "mcts-search");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			executorThreads = threads;
+		}
+		invokeAll(executor, Arrays.asList(workers));
+	}
+	
+	//runs the tasks and waits for all of them, passing on the first move exception
+	private static void invokeAll(ExecutorService service, List<? extends Callable<Void>> tasks) throws MoveException {
+		try {
+			for (Future<Void> result : service.invokeAll(tasks)){
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			//keep what has been searched so far
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof MoveException){
+				throw (MoveException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+	
+	/**
+	 * One search thread. Every worker has its own state to play on and its own random source, the only
+	 * things shared are the iteration budget and, unless the search is root parallel, the tree
+	 */
+	class SearchWorker implements Callable<Void> {
+		
+		//split off the player's seed for every search, so no two threads ever share one
+		private SplittableRandom random;
+		//search state, rewound to the root after every iteration
+		GameState scratch;
+		private int rootTurn;
+		private AtomicInteger remaining;
+		//the tree being searched, and the tree of this worker alone for root parallel searches
+		private MCTSTree tree;
+		private MCTSTree ownTree;
+		//whether each player passed on their last rollout move, indexed by color ordinal
+		private boolean[] justPassed = new boolean[PlayerColor.values().length];
+		//result of the last rollout played for a leaf parallel search
+		private boolean blackWon;
+		//turn of the node the last selection ended at
+		int leafTurn;
+		//rollout statistics since the last reset
+		private long rolloutMoves;
+		private int lengthCutoffs;
+		private int mercyCutoffs;
+		//per point, the AMAF update that last saw it played and the color that played it first from
+		//the turn being looked at on
+		private int[] amafSeen;
+		private byte[] amafColor;
+		private int amafStamp;
+		
+		MCTSTree ownTree(GameState rootstate, int nodes, int moves){
+			if (ownTree == null){
+				ownTree = new MCTSTree();
+			}
+			ownTree.setRaveEquivalence(raveEquivalence);
+			ownTree.setMovePrior(movePrior);
+			ownTree.createRoot(rootstate);
+			ownTree.ensureCapacity(nodes, moves);
+			return ownTree;
+		}
+		
+		void reset(GameState rootstate, AtomicInteger remaining, MCTSTree tree, SplittableRandom random){
+			if (scratch == null || scratch.getBoard().getBoardSize() != rootstate.getBoard().getBoardSize()){
+				scratch = rootstate.clone();
+			} else {
+				scratch.copyFrom(rootstate);
+			}
+			rootTurn = scratch.getTurn();
+			rolloutMoves = 0;
+			lengthCutoffs = 0;
+			mercyCutoffs = 0;
+			this.remaining = remaining;
+			this.tree = tree;
+			this.random = random;
+		}
+		
+		@Override
+		public Void call() throws MoveException {
+			while (remaining.getAndDecrement() > 0 && !Thread.currentThread().isInterrupted()){
+				int node = selectAndExpand(1);
+				boolean blackWon = rollout();
+				backpropagate(tree, node, 1, blackWon ? 1 : 0);
+				updateAmaf(node, 1, blackWon ? 1 : 0);
+				rewind(rootTurn);
+			}
+			return null;
+		}
+		
+		/**
+		 * Walks down the tree from the root, playing the moves on this worker's state, and expands the node
+		 * it ends at
+		 * @param playouts	the number of rollouts that will be played from the new node, counted as virtual
+		 * 					losses on the way down
+		 * @return			the new node, or the node the walk ended at if the game is over there or the tree
+		 * 					is full
+		 * @throws MoveException
+		 */
+		int selectAndExpand(int playouts) throws MoveException {
+			GameState state = scratch;
+			FastBoard board = state.getBoard();
+			int node = tree.getRoot();
+			tree.addVirtualLoss(node, playouts);
 			
-			//Expand
-			if (node.getUntriedMoves() != null){
-				Set<Move> untried = node.getUntriedMoves();
-				stripBadMoves(untried, state);
-				Move m;
-				if (untried.isEmpty()){
-					m = Move.getMoveInstance(MoveType.PASS, 0, 0);
-				} else {
-					List<Move> possibleMoveList = new ArrayList<>(untried);
-					m = possibleMoveList.get(random.nextInt(untried.size()));
+			//Select, then Expand, unless the game is over at the node and it can only be scored
+			while (true){
+				if (tree.isTerminal(node)){
+					leafTurn = state.getTurn();
+					return node;
+				}
+				if (tree.isFullyExpanded(node)){
+					node = tree.selectChild(node, random);
+					state.addMove(toMove(board, tree.getMove(node)));
+					tree.addVirtualLoss(node, playouts);
+					continue;
+				}
+				int child = tree.expand(node, state, random);
+				if (child == node){
+					leafTurn = state.getTurn();
+					return node;
+				} else if (child != MCTSTree.NO_NODE){
+					tree.addVirtualLoss(child, playouts);
+					leafTurn = state.getTurn();
+					return child;
 				}
-				state.addMove(m);
-				node = node.addChild(m, state);
 			}
+		}
+		
+		/**
+		 * Plays a rollout on this worker's state from wherever it is and removes dead groups. The rollout
+		 * ends early once it reaches the move limit, and without scoring once one side has gained the mercy
+		 * margin in stones and captures. The state is left at the end of the rollout
+		 * @return	whether black won
+		 * @throws MoveException
+		 */
+		boolean rollout() throws MoveException {
+			GameState state = scratch;
+			FastBoard board = state.getBoard();
 			
-			//Rollout
-			Set<Move> possibleMoves = state.getPossibleMoves(state.getNextToMove().getColor());
-			Map<PlayerColor, Boolean> justPassed = new HashMap<PlayerColor, Boolean>();
-			justPassed.put(PlayerColor.BLACK, false);
-			justPassed.put(PlayerColor.WHITE, false);
-			while (!possibleMoves.isEmpty()){
-				Move m = getBestMove(possibleMoves, state);
-				if (m.equals(Move.getMoveInstance(MoveType.PASS, 0, 0))){
-					if (!justPassed.get(state.getNextToMove().getColor())){
-						justPassed.put(state.getNextToMove().getColor(), Boolean.TRUE);
-					} else {
+			//Rollout, until both players pass or every point is settled. Checking whether the board is
+			//settled looks at every point, so it is only done every few moves once the board is nearly full.
+			//Passes in the tree count, so a rollout after two of them only scores the board
+			for (PlayerColor color : PlayerColor.values()){
+				Move last = state.getLastMove(color);
+				justPassed[color.ordinal()] = last != null && last.getType().equals(MoveType.PASS);
+			}
+			boolean bothPassed = justPassed[PlayerColor.BLACK.ordinal()] && justPassed[PlayerColor.WHITE.ordinal()];
+			int points = board.getPoints().length;
+			int settledCheck = board.getBoardSize();
+			int settledEmpties = points / 8;
+			int maxMoves = maxRolloutMoves < 0 ? points * DEFAULT_ROLLOUT_MOVES_PER_POINT : maxRolloutMoves;
+			int margin = mercyMargin < 0 ? points / DEFAULT_MERCY_POINTS_PER_MARGIN : mercyMargin;
+			//the lead is counted from the start of the rollout, a lead the real game already has would
+			//otherwise end every rollout at once and leave nothing to choose between
+			int startLead = blackLead(board);
+			for (int moves = 1; !bothPassed; moves++){
+				PlayerColor toMove = state.getNextToMove().getColor();
+				Move m = getBestMove(state);
+				if (m.getType().equals(MoveType.PASS)){
+					if (justPassed[toMove.ordinal()]){
 						break;
 					}
+					justPassed[toMove.ordinal()] = true;
 				} else {
-					justPassed.put(state.getNextToMove().getColor(), Boolean.FALSE);
+					justPassed[toMove.ordinal()] = false;
 				}
 				state.addMove(m);
-				possibleMoves = state.getPossibleMoves(state.getNextToMove().getColor());
-
+				rolloutMoves++;
+				if (moves % settledCheck == 0 && board.getEmptyPoints().size() <= settledEmpties && state.isSettled()){
+					break;
+				}
+				if (margin > 0){
+					int lead = blackLead(board) - startLead;
+					if (lead >= margin || -lead >= margin){
+						mercyCutoffs++;
+						return lead > 0;
+					}
+				}
+				if (moves == maxMoves){
+					lengthCutoffs++;
+					break;
+				}
 			}
 
 			state.captureDeadGroups();
-				
-			
-			//Backpropogate
-			while (node != null){
-				Map<PlayerColor, Integer> score = state.getScore();
-				Integer myScore = 0;
-				Integer enemyScore = 0;
-				for (Entry<PlayerColor, Integer> entry : score.entrySet()){
-					if (entry.getKey().equals(node.getPlayerJustMoved())){
-						myScore = entry.getValue();
-					} else {
-						enemyScore = entry.getValue();
+			//ties go to white
+			return state.getScore(PlayerColor.BLACK) > state.getScore(PlayerColor.WHITE);
+		}
+		
+		/**
+		 * Credits the children of every node from the leaf up to the root whose move was played later on in
+		 * this worker's last iteration, by the player to move at the node and before the other player
+		 * played the point. The state must still be at the end of the rollout
+		 * @param leaf			the node the rollout was played from
+		 * @param playouts		the number of rollouts the result stands for
+		 * @param blackWins		how many of them black won
+		 */
+		void updateAmaf(int leaf, int playouts, int blackWins){
+			if (tree.getRaveEquivalence() == 0){
+				return;
+			}
+			GameState state = scratch;
+			FastBoard board = state.getBoard();
+			int stride = board.getBoardSize() + 2;
+			if (amafSeen == null || amafSeen.length != stride * stride){
+				amafSeen = new int[stride * stride];
+				amafColor = new byte[stride * stride];
+			}
+			int stamp = ++amafStamp;
+			byte rootColor = FastBoard.opponent(tree.getPlayerJustMoved(tree.getRoot()));
+			int node = leaf;
+			int nodeTurn = leafTurn;
+			//going backwards, so the color left for a point is the one that played it first
+			for (int turn = state.getTurn() - 1; turn >= rootTurn && node != MCTSTree.NO_NODE; turn--){
+				Move m = state.getMove(turn);
+				if (m.getType().equals(MoveType.NORMAL)){
+					int point = board.point(m);
+					amafSeen[point] = stamp;
+					amafColor[point] = (turn - rootTurn) % 2 == 0 ? rootColor : FastBoard.opponent(rootColor);
+				}
+				if (turn == nodeTurn){
+					byte toMove = FastBoard.opponent(tree.getPlayerJustMoved(node));
+					int won = toMove == FastBoard.BLACK ? blackWins : playouts - blackWins;
+					for (int child = tree.getFirstChild(node); child != MCTSTree.NO_NODE; child = tree.getNextSibling(child)){
+						int point = tree.getMove(child);
+						if (point != MCTSTree.PASS && amafSeen[point] == stamp && amafColor[point] == toMove){
+							tree.updateAmaf(child, playouts, won);
+						}
 					}
+					node = tree.getParent(node);
+					nodeTurn--;
 				}
-				node.update(myScore > enemyScore || (myScore == enemyScore && node.getPlayerJustMoved().equals(PlayerColor.WHITE)));
-				node = node.getParent();
 			}
 		}
 		
-		return Collections.max(root.getChildren(), new Comparator<MCTSNode>(){
-			@Override
-			public int compare(MCTSNode o1, MCTSNode o2) {
-				return o1.getVisits().compareTo(o2.getVisits());
+		//takes back moves until the state is at the given turn again
+		void rewind(int turn) throws MoveException {
+			while (scratch.getTurn() > turn){
+				scratch.undoMove();
 			}
-		}).getMove();
-	}
+		}
 
-	private Move getBestMove(Set<Move> possibleMoves, GameState state) {
-		/**
-		 * This method determines the best move to try based on the following logic
-		 * (some portions not yet implemented, marked as such (NYI):
+		private Move getBestMove(GameState state) {
+			/**
+			 * This method determines the best move to try based on the following logic:
 		 
-		 if the last move is an atari, then
-		 	Save the stones which are in atari.
-	(NYI)else if there is an empty location among the 8 locations around the last move which matches a pattern then
-	(NYI)	Play randomly uniformly in one of these locations.
-	(NYI)else if there is a move which captures stones then
-			Capture stones.
-		else if there is a legal move then
-			Play randomly a legal move that doesn't kill your own eyespace
-		else
-			Return pass.
-		end if
-		 */
-		Player currentPlayer = state.getNextToMove();
-		stripBadMoves(possibleMoves, state);
-		if (possibleMoves.isEmpty()){
-			return Move.getMoveInstance(MoveType.PASS, 0, 0);
-		}
+			 if the last move is an atari, then
+			 	Save the stones which are in atari.
+			else if there is a move which captures stones then
+				Capture stones.
+			else if patterns are on and there is an empty location among the 8 locations around the last move which matches a pattern then
+				Play randomly uniformly in one of these locations.
+			else if there is a legal move then
+				Play randomly a legal move that doesn't kill your own eyespace
+			else
+				Return pass.
+			end if
+			 */
+			FastBoard board = state.getBoard();
+			PlayerColor color = state.getNextToMove().getColor();
 
-		//save stones that are in atari
-		Move move = state.getLastMove(currentPlayer.getColor());
-		StoneGroup group = state.getStoneGroupAt(move);
-		if (group != null && group.getRemainingLiberties()==1){
-			Intersection i = group.getLiberties().iterator().next();
-			move = Move.getMoveInstance(MoveType.NORMAL, i.x_location, i.y_location);
-			if (possibleMoves.contains(move)){
-				return move;
+			//save stones that are in atari
+			Move move = state.getLastMove(color);
+			if (move != null && move.getType().equals(MoveType.NORMAL)){
+				int liberty = board.getAtariLiberty(board.point(move));
+				if (liberty != FastBoard.NO_POINT && isPlayable(liberty, state, color)){
+					return board.getMove(liberty);
+				}
 			}
-		}
-		
-		//implement pattern matching here at a later time
 		
+			//try to kill enemy groups around the last two moves, biggest first. Only looking near the
+			//last moves keeps this from growing with the size of the board
+			byte enemy = FastBoard.opponent(FastBoard.stoneColor(color));
+			Move enemyMove = state.getLastMove();
+			int capture = FastBoard.NO_POINT;
+			int captureSize = 0;
+			if (enemyMove != null && enemyMove.getType().equals(MoveType.NORMAL)){
+				int point = board.point(enemyMove);
+				if (board.getColor(point) == enemy){
+					capture = board.getAtariLiberty(point);
+					captureSize = capture == FastBoard.NO_POINT || !isPlayable(capture, state, color) ? 0 : board.getGroupSize(point);
+				}
+			}
+			if (move != null && move.getType().equals(MoveType.NORMAL)){
+				int point = board.point(move);
+				for (int offset : board.getNeighborOffsets()){
+					int neighbor = point + offset;
+					if (board.getColor(neighbor) == enemy){
+						int liberty = board.getAtariLiberty(neighbor);
+						int size = board.getGroupSize(neighbor);
+						if (liberty != FastBoard.NO_POINT && size > captureSize && isPlayable(liberty, state, color)){
+							capture = liberty;
+							captureSize = size;
+						}
+					}
+				}
+			}
+			if (captureSize > 0){
+				return board.getMove(capture);
+			}
+
+			//play a good shape next to the other player's move, unless it puts the stone in atari, picking
+			//uniformly among the points that match as they are found
+			if (patternRollouts && enemyMove != null && enemyMove.getType().equals(MoveType.NORMAL)){
+				int point = board.point(enemyMove);
+				int pattern = FastBoard.NO_POINT;
+				int matches = 0;
+				for (int offset : board.getPatternOffsets()){
+					int neighbor = point + offset;
+					if (board.getColor(neighbor) == FastBoard.EMPTY && Pattern3x3.matches(board.getPattern(neighbor))
+							&& isPlayable(neighbor, state, color) && !board.isSelfAtari(neighbor, color)
+							&& random.nextInt(++matches) == 0){
+						pattern = neighbor;
+					}
+				}
+				if (pattern != FastBoard.NO_POINT){
+					return board.getMove(pattern);
+				}
+			}
 		
-		//try to kill enemy groups
-		Set<StoneGroup> groups = state.getGroupsInAtari();
-		Set<StoneGroup> enemyGroups = new TreeSet<>(new Comparator<StoneGroup>(){
-			@Override
-			public int compare(StoneGroup o1, StoneGroup o2) {
-				Integer o2Size = o2.getStones().size();
-				Integer o1Size = o1.getStones().size();
-				return o2Size.compareTo(o1Size);
+			//play randomly. Legal points that can't be played (eyes, ko) are rare, so a few uniform samples
+			//almost always find a move before falling back to scanning from a random point
+			PointSet legal = state.getLegalPoints(color);
+			if (legal.isEmpty()){
+				return Move.getMoveInstance(MoveType.PASS, 0, 0);
 			}
-		});
-		for (StoneGroup atariGroup : groups){
-			if (!atariGroup.getOwner().equals(currentPlayer.getColor())){
-				enemyGroups.add(atariGroup);
+			for (int i = 0; i<RANDOM_MOVE_SAMPLES; i++){
+				int point = legal.get(random.nextInt(legal.size()));
+				if (isPlayable(point, state, color)){
+					return board.getMove(point);
+				}
 			}
-		}
-		int asi = 0;
-		for (StoneGroup enemyGroup : enemyGroups){
-			Intersection i = enemyGroup.getLiberties().iterator().next();
-			Move m = Move.getMoveInstance(MoveType.NORMAL, i.x_location, i.y_location);
-			if (possibleMoves.contains(m)){
-				return m;
+			int start = random.nextInt(legal.size());
+			for (int i = 0; i<legal.size(); i++){
+				int point = legal.get((start + i) % legal.size());
+				if (isPlayable(point, state, color)){
+					return board.getMove(point);
+				}
 			}
+			return Move.getMoveInstance(MoveType.PASS, 0, 0);
 		}
-		
-		//play randomly
-		List<Move> moveList = new ArrayList<>(possibleMoves);
-		return moveList.get(random.nextInt(possibleMoves.size()));
-	}
 
-	
-	//don't try moves that reduce your own eye space
-	private void stripBadMoves(Set<Move> possibleMoves, GameState state) {
-		for (Iterator<Move> it = possibleMoves.iterator(); it.hasNext();){
-			Move move = it.next();
-			if (state.isEye(move, state.getNextToMove().getColor())){
-				it.remove();
-			}
+		//legal, and doesn't reduce your own eye space
+		private boolean isPlayable(int point, GameState state, PlayerColor color) {
+			return state.isLegalMove(point, color) && !state.isEye(point, color);
 		}
 	}
 
-	//lets help the GC out
-	private void pruneTree(Move lastMove, GameState state) {
-		MCTSNode newNode = new MCTSNode(lastMove, null, state);
-		for (MCTSNode node : root.getChildren()){
-			if (node.getMove().equals(lastMove)){
-				newNode = node;
-			}
-			node.setParent(null);
+	//keeps only the part of the tree below the move, passes included, recycling everything else at once.
+	//False if there is no tree or the move was never expanded, the tree is left as it is then
+	private boolean pruneTree(Move lastMove, GameState state) {
+		if (tree.getRoot() == MCTSTree.NO_NODE){
+			return false;
 		}
-		if (root != null){
-			root.getChildren().clear();
+		int child = tree.findChild(tree.getRoot(), toPoint(state.getBoard(), lastMove));
+		if (child == MCTSTree.NO_NODE){
+			return false;
 		}
-		root = newNode;
+		spareTree.compactFrom(tree, child);
+		MCTSTree discarded = tree;
+		tree = spareTree;
+		spareTree = discarded;
+		spareTree.clear();
+		return true;
 	}
 
 }
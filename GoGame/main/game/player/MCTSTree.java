@@ -0,0 +1,695 @@
+package game.player;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import app.GameState;
+import enums.MoveType;
+import enums.PlayerColor;
+import exception.MoveException;
+import game.model.FastBoard;
+import game.model.Move;
+import game.model.PointSet;
+
+/**
+ * Search tree stored as parallel primitive arrays indexed by node, so growing the tree creates no objects
+ * and selection reads plain arrays. Children of a node form a list through firstChild / nextSibling. The
+ * moves of a node are only generated when it is first expanded, as a shuffled slice of a shared pool of
+ * points with a cursor past the ones already tried, so nodes that are never expanded cost no more than
+ * their own slots. The pool is allocated in chunks as slices land in them, so it only takes memory for the
+ * moves that were generated. Passing is one of the moves of every node, scored by selection like any other, so the
+ * tree has a child to move on to whichever move the other player makes. A node reached by two passes in a
+ * row ends the game, it is terminal and never gets any moves.
+ *
+ * The tree is safe to share between search threads. Visits and wins are atomic (wins are float bits), and
+ * a visit is counted as soon as a thread walks through a node (a virtual loss), with the win added once the
+ * rollout is done, so threads walking down at the same time spread out over different children. Generating
+ * the moves of a node takes one of a few striped locks. After that moves are claimed by moving the atomic
+ * cursor and a new child is published by a compare and set of the parent's first child, so neither
+ * selection nor expansion waits.
+ *
+ * Nodes are never freed one by one. When the search moves on, the subtree that is kept is copied into a
+ * second tree with {@link #compactFrom(MCTSTree, int)} and everything left in the old one is dropped at once
+ * by {@link #clear()}. The copy is laid out breadth first, so siblings end up next to each other.
+ *
+ * A node can start with a bias from a {@link MovePrior}, which counts as extra wins that fade as the node
+ * is visited.
+ *
+ * Every node also keeps all moves as first (AMAF) statistics: the rollouts in which its move was played by
+ * the same player at any later point, not just right away. Selection blends them in while a node has few
+ * visits of its own, see {@link #setRaveEquivalence(int)}.
+ *
+ * With a {@link TranspositionTable}, nodes of the same position with the same player to move share their
+ * statistics through it, and selection uses the shared ones when they have more visits. Each node keeps
+ * its own counts as well, so the tree structure, compaction and the choice of move are unchanged.
+ */
+public class MCTSTree {
+
+	public static final int NO_NODE = -1;
+	//move of a node whose move was a pass, every other move is a board point
+	public static final int PASS = FastBoard.NO_POINT;
+
+	private static final double epsilon = 1e-6;
+	private static final int LOCK_STRIPES = 64;
+	private static final int NOT_GENERATED = -1;
+	//entries per chunk of the pool, far more than the moves of a node on the largest board
+	private static final int CHUNK_BITS = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private int[] move;
+	private int[] parent;
+	private AtomicIntegerArray firstChild;
+	private int[] nextSibling;
+	//color of the player whose move led to the node
+	private byte[] playerJustMoved;
+	//whether the node's move and the one before it were both passes, which ends the game
+	private boolean[] terminal;
+	private AtomicIntegerArray visits;
+	private AtomicIntegerArray wins;
+	//all moves as first visits and wins, the wins as float bits
+	private AtomicIntegerArray amafVisits;
+	private AtomicIntegerArray amafWins;
+	private int raveEquivalence;
+	//prior wins of every node, divided by its visits + 1 in selection
+	private float[] bias;
+	private MovePrior movePrior;
+	//the position key of every node and its entry in the transposition table, if there is one
+	private long[] key;
+	private int[] entry;
+	private TranspositionTable transpositions;
+	//moves of every node in random order, as a slice of the pool. The ones before the cursor have been
+	//tried, and the cursor is NOT_GENERATED until the slice is filled
+	private int[] untriedStart;
+	private int[] untriedCount;
+	private AtomicIntegerArray untriedCursor;
+	//chunks of the pool, each allocated when the first slice lands in it. A slice never spans two chunks
+	private AtomicReferenceArray<int[]> untriedPool;
+
+	//keeps counting past the end once the tree is full, see ensureCapacity
+	private AtomicInteger nodeCount;
+	//the end of the slices claimed so far, never past the last chunk
+	private AtomicInteger poolTop;
+	private int root;
+	//during compactFrom, the node of the other tree each node of this tree was copied from
+	private int[] copiedFrom = new int[0];
+
+	private final Object[] locks;
+
+	public MCTSTree(){
+		this(1024, 1024 * 16);
+	}
+
+	/**
+	 * @param nodeCapacity		nodes the tree can hold before it has to grow
+	 * @param poolCapacity		untried moves the tree can hold before it has to grow
+	 */
+	public MCTSTree(int nodeCapacity, int poolCapacity){
+		move = new int[nodeCapacity];
+		parent = new int[nodeCapacity];
+		firstChild = new AtomicIntegerArray(nodeCapacity);
+		nextSibling = new int[nodeCapacity];
+		playerJustMoved = new byte[nodeCapacity];
+		terminal = new boolean[nodeCapacity];
+		visits = new AtomicIntegerArray(nodeCapacity);
+		wins = new AtomicIntegerArray(nodeCapacity);
+		amafVisits = new AtomicIntegerArray(nodeCapacity);
+		amafWins = new AtomicIntegerArray(nodeCapacity);
+		bias = new float[nodeCapacity];
+		key = new long[nodeCapacity];
+		entry = new int[nodeCapacity];
+		untriedStart = new int[nodeCapacity];
+		untriedCount = new int[nodeCapacity];
+		untriedCursor = new AtomicIntegerArray(nodeCapacity);
+		untriedPool = new AtomicReferenceArray<>(chunksFor(poolCapacity));
+		nodeCount = new AtomicInteger();
+		poolTop = new AtomicInteger();
+		root = NO_NODE;
+		locks = new Object[LOCK_STRIPES];
+		for (int i = 0; i<LOCK_STRIPES; i++){
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Drops every node at once
+	 */
+	public void clear(){
+		nodeCount.set(0);
+		poolTop.set(0);
+		root = NO_NODE;
+	}
+
+	/**
+	 * Clears the tree and starts it again at the position of the state
+	 * @param state		the position at the root
+	 * @return			the root node
+	 */
+	public int createRoot(GameState state){
+		clear();
+		ensureCapacity(1, 0);
+		root = newNode(PASS, NO_NODE, state, 0);
+		return root;
+	}
+
+	/**
+	 * Clears the tree, since its nodes refer to entries of the table used so far
+	 * @param transpositions	table the statistics of transpositions are shared through, or null to
+	 * 							not share them
+	 */
+	public void setTranspositionTable(TranspositionTable transpositions){
+		clear();
+		this.transpositions = transpositions;
+	}
+
+	public TranspositionTable getTranspositionTable(){
+		return transpositions;
+	}
+
+	/**
+	 * Sets how much the AMAF statistics of a node count in selection. They are weighted by
+	 * sqrt(k / (3 * visits + k)), so they decide for a node with few visits and fade out as its own
+	 * results come in, counting for about a third at k visits
+	 * @param k		the number of visits k, 0 to ignore AMAF statistics
+	 */
+	public void setRaveEquivalence(int k){
+		raveEquivalence = k;
+	}
+
+	public int getRaveEquivalence(){
+		return raveEquivalence;
+	}
+
+	/**
+	 * @param movePrior		gives every new child its bias, or null to start every child without one
+	 */
+	public void setMovePrior(MovePrior movePrior){
+		this.movePrior = movePrior;
+	}
+
+	public MovePrior getMovePrior(){
+		return movePrior;
+	}
+
+	public int getRoot(){
+		return root;
+	}
+
+	public int size(){
+		return Math.min(nodeCount.get(), move.length);
+	}
+
+	/**
+	 * Makes sure the tree can take more nodes without growing during a search. Must not be called while
+	 * a search is running. Only room for the chunks of the pool is made, they are allocated when used
+	 * @param nodes		nodes that will be added
+	 * @param moves		untried moves that will be generated
+	 */
+	public void ensureCapacity(int nodes, int moves){
+		//space claimed after the tree filled up was never used
+		nodeCount.set(size());
+		int needed = nodeCount.get() + nodes;
+		if (needed > move.length){
+			int capacity = Math.max(needed, move.length * 2);
+			move = Arrays.copyOf(move, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			firstChild = grow(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			playerJustMoved = Arrays.copyOf(playerJustMoved, capacity);
+			terminal = Arrays.copyOf(terminal, capacity);
+			visits = grow(visits, capacity);
+			wins = grow(wins, capacity);
+			amafVisits = grow(amafVisits, capacity);
+			amafWins = grow(amafWins, capacity);
+			bias = Arrays.copyOf(bias, capacity);
+			key = Arrays.copyOf(key, capacity);
+			entry = Arrays.copyOf(entry, capacity);
+			untriedStart = Arrays.copyOf(untriedStart, capacity);
+			untriedCount = Arrays.copyOf(untriedCount, capacity);
+			untriedCursor = grow(untriedCursor, capacity);
+		}
+		int chunks = (poolTop.get() >>> CHUNK_BITS) + 1 + chunksFor(moves);
+		if (chunks > untriedPool.length()){
+			AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(Math.max(chunks, untriedPool.length() * 2));
+			for (int i = 0; i<untriedPool.length(); i++){
+				grown.set(i, untriedPool.get(i));
+			}
+			untriedPool = grown;
+		}
+	}
+
+	//a chunk is more than half full before a slice has to start the next one, so this many always fit
+	//the moves
+	private static int chunksFor(long moves){
+		return (int) Math.min(Integer.MAX_VALUE >>> CHUNK_BITS, 2 * moves / CHUNK_SIZE + 1);
+	}
+
+	//claims entries of the pool in a single chunk, allocating the chunk if this is its first slice, -1 if
+	//the pool is full
+	private int claimSlice(int entries){
+		int top;
+		int start;
+		do {
+			top = poolTop.get();
+			start = top;
+			if ((start >>> CHUNK_BITS) != ((start + entries - 1) >>> CHUNK_BITS)){
+				//the rest of this chunk stays empty
+				start = (start + entries - 1) >>> CHUNK_BITS << CHUNK_BITS;
+			}
+			if (start + entries > (long) untriedPool.length() << CHUNK_BITS){
+				return -1;
+			}
+		} while (!poolTop.compareAndSet(top, start + entries));
+		int chunk = start >>> CHUNK_BITS;
+		if (untriedPool.get(chunk) == null){
+			//if another thread allocates it first, its array is the one used
+			untriedPool.compareAndSet(chunk, null, new int[CHUNK_SIZE]);
+		}
+		return start;
+	}
+
+	//the chunk holding the slice that starts at the entry
+	private int[] chunk(int start){
+		return untriedPool.get(start >>> CHUNK_BITS);
+	}
+
+	private static AtomicIntegerArray grow(AtomicIntegerArray array, int capacity){
+		AtomicIntegerArray grown = new AtomicIntegerArray(capacity);
+		for (int i = 0; i<array.length(); i++){
+			grown.set(i, array.get(i));
+		}
+		return grown;
+	}
+
+	//adds a node for the position of the state, returning NO_NODE when the tree is full
+	private int newNode(int nodeMove, int nodeParent, GameState state, float nodeBias){
+		int node = nodeCount.getAndIncrement();
+		if (node >= move.length){
+			return NO_NODE;
+		}
+		move[node] = nodeMove;
+		parent[node] = nodeParent;
+		firstChild.set(node, NO_NODE);
+		nextSibling[node] = NO_NODE;
+		visits.set(node, 0);
+		wins.set(node, 0);
+		amafVisits.set(node, 0);
+		amafWins.set(node, 0);
+		bias[node] = nodeBias;
+		playerJustMoved[node] = FastBoard.stoneColor(state.getLastMoved().getColor());
+		terminal[node] = passed(state, PlayerColor.BLACK) && passed(state, PlayerColor.WHITE);
+		untriedCursor.set(node, NOT_GENERATED);
+		if (transpositions != null){
+			key[node] = TranspositionTable.key(state.getPositionHash());
+			entry[node] = transpositions.lookup(key[node]);
+		} else {
+			entry[node] = TranspositionTable.NO_ENTRY;
+		}
+		return node;
+	}
+
+	private static boolean passed(GameState state, PlayerColor color){
+		Move last = state.getLastMove(color);
+		return last != null && last.getType().equals(MoveType.PASS);
+	}
+
+	//fills the node's slice with the legal moves of the state and a pass in random order, false if the pool
+	//is full
+	private boolean generateMoves(int node, GameState state, SplittableRandom random){
+		PlayerColor toMove = state.getNextToMove().getColor();
+		PointSet legal = state.getLegalPoints(toMove);
+		int start = claimSlice(legal.size() + 1);
+		if (start < 0){
+			return false;
+		}
+		int[] pool = chunk(start);
+		int offset = start & CHUNK_MASK;
+		pool[offset] = PASS;
+		int count = 1;
+		for (int i = 0; i<legal.size(); i++){
+			int point = legal.get(i);
+			if (state.isLegalMove(point, toMove)){
+				//inside out shuffle, each point swaps with a random one of those written so far
+				int j = random.nextInt(count + 1);
+				pool[offset + count] = pool[offset + j];
+				pool[offset + j] = point;
+				count++;
+			}
+		}
+		untriedStart[node] = start;
+		untriedCount[node] = count;
+		//the volatile write of the cursor publishes the slice
+		untriedCursor.set(node, 0);
+		return true;
+	}
+
+	/**
+	 * Select the best child based on Upper Confidence Bound. This balances exploration (nodes not
+	 * traveled very often) and exploitation (nodes that are known to have a high win ratio)
+	 * @param node			the node whose children are considered
+	 * @param random		random source of the calling search thread, used to break ties
+	 * @return The optimal node to playout
+	 */
+	public int selectChild(int node, SplittableRandom random){
+		int selected = NO_NODE;
+		double best = Double.NEGATIVE_INFINITY;
+		double logVisits = Math.log(visits.get(node) + 1);
+		for (int child = firstChild.get(node); child != NO_NODE; child = nextSibling[child]){
+			float childWins = Float.intBitsToFloat(wins.get(child));
+			int childVisits = visits.get(child);
+			int shared = entry[child];
+			if (shared != TranspositionTable.NO_ENTRY && transpositions.matches(shared, key[child])
+					&& transpositions.getVisits(shared) > childVisits){
+				childWins = transpositions.getWins(shared);
+				childVisits = transpositions.getVisits(shared);
+			}
+			double ratio = childWins/(epsilon + childVisits);
+			int childAmafVisits = amafVisits.get(child);
+			if (raveEquivalence > 0 && childAmafVisits > 0){
+				double beta = Math.sqrt(raveEquivalence/(3.0*childVisits + raveEquivalence));
+				double amafRatio = Float.intBitsToFloat(amafWins.get(child))/childAmafVisits;
+				ratio = (1-beta)*ratio + beta*amafRatio;
+			}
+			//progressive bias, worth less with every visit
+			ratio += bias[child]/(childVisits + 1);
+			double uctValue = ratio + Math.sqrt(logVisits/(epsilon + childVisits)) + random.nextDouble()*epsilon;
+			if (uctValue > best){
+				selected = child;
+				best = uctValue;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Whether selection should move on to a child rather than expanding this node. Reading this without the
+	 * lock is only a hint, {@link #expand(int, GameState, SplittableRandom)} decides for certain
+	 */
+	public boolean isFullyExpanded(int node){
+		int cursor = untriedCursor.get(node);
+		return firstChild.get(node) != NO_NODE && cursor != NOT_GENERATED && cursor >= untriedCount[node];
+	}
+
+	/**
+	 * Plays the next untried move on the state and adds a child for it, generating the moves of the node
+	 * first if this is its first expansion. Moves that fill the player's own eyes are dropped, passing is
+	 * always tried. Only generating moves locks
+	 * @param node		the node to expand
+	 * @param state		the search thread's state, positioned at the node
+	 * @param random	random source of the calling search thread
+	 * @return			the new child, the node itself if it is terminal or the tree is full (nothing is played
+	 * 					then), or NO_NODE if another thread already expanded every move
+	 * @throws MoveException
+	 */
+	public int expand(int node, GameState state, SplittableRandom random) throws MoveException {
+		if (terminal[node] || nodeCount.get() >= move.length){
+			//the game is over or the tree is full, play out from here
+			return node;
+		}
+		Object lock = locks[node & (LOCK_STRIPES - 1)];
+		if (untriedCursor.get(node) == NOT_GENERATED){
+			synchronized (lock){
+				if (untriedCursor.get(node) == NOT_GENERATED && !generateMoves(node, state, random)){
+					return node;
+				}
+			}
+		}
+		PlayerColor toMove = state.getNextToMove().getColor();
+		int point;
+		while (true){
+			//the cursor may run past the end, that only means every move has been claimed
+			int i = untriedCursor.getAndIncrement(node);
+			if (i >= untriedCount[node]){
+				return NO_NODE;
+			}
+			point = chunk(untriedStart[node])[(untriedStart[node] & CHUNK_MASK) + i];
+			//don't try moves that reduce your own eye space
+			if (point == PASS || !state.isEye(point, toMove)){
+				break;
+			}
+		}
+		float childBias = biasOf(state, point, toMove);
+		state.addMove(moveOf(state, point));
+		int child = newNode(point, node, state, childBias);
+		if (child == NO_NODE){
+			state.undoMove();
+			return node;
+		}
+		//publishing the child last makes it visible to threads selecting at the same time
+		int first;
+		do {
+			first = firstChild.get(node);
+			nextSibling[child] = first;
+		} while (!firstChild.compareAndSet(node, first, child));
+		return child;
+	}
+
+	/**
+	 * Adds the child for one of the node's untried moves with the visits and wins it starts from, which
+	 * count for the node as well, and moves it ahead of the other untried moves. Meant for warming up a
+	 * tree before it is searched, must not be called while it is
+	 * @param node		the node to expand
+	 * @param state		a state positioned at the node, left there
+	 * @param point		the move
+	 * @param startVisits	visits the child starts with
+	 * @param startWins		wins the child starts with, for the player making the move
+	 * @param random	random source, used if the moves of the node have to be generated
+	 * @return			the new child, or NO_NODE if the move is not one the node would try or the tree is full
+	 * @throws MoveException
+	 */
+	public int expandWith(int node, GameState state, int point, int startVisits, float startWins, SplittableRandom random) throws MoveException {
+		if (terminal[node] || nodeCount.get() >= move.length
+				|| (untriedCursor.get(node) == NOT_GENERATED && !generateMoves(node, state, random))){
+			return NO_NODE;
+		}
+		PlayerColor toMove = state.getNextToMove().getColor();
+		int cursor = untriedCursor.get(node);
+		int[] pool = chunk(untriedStart[node]);
+		int offset = untriedStart[node] & CHUNK_MASK;
+		int i = cursor;
+		while (i < untriedCount[node] && pool[offset + i] != point){
+			i++;
+		}
+		if (i >= untriedCount[node] || (point != PASS && state.isEye(point, toMove))){
+			return NO_NODE;
+		}
+		pool[offset + i] = pool[offset + cursor];
+		pool[offset + cursor] = point;
+		untriedCursor.set(node, cursor + 1);
+		float childBias = biasOf(state, point, toMove);
+		state.addMove(moveOf(state, point));
+		int child = newNode(point, node, state, childBias);
+		state.undoMove();
+		if (child == NO_NODE){
+			return NO_NODE;
+		}
+		visits.set(child, startVisits);
+		wins.set(child, Float.floatToRawIntBits(startWins));
+		visits.addAndGet(node, startVisits);
+		nextSibling[child] = firstChild.get(node);
+		firstChild.set(node, child);
+		return child;
+	}
+
+	//passes get no bias, the prior only knows about stones
+	private float biasOf(GameState state, int point, PlayerColor toMove){
+		return movePrior == null || point == PASS ? 0 : movePrior.getBias(state, point, toMove);
+	}
+
+	private static Move moveOf(GameState state, int point){
+		return point == PASS ? Move.getMoveInstance(MoveType.PASS, 0, 0) : state.getBoard().getMove(point);
+	}
+
+	/**
+	 * Counts visits before their results are known, so they look like losses to other threads until
+	 * {@link #update(int, float)} adds the results
+	 * @param node			the node walked through
+	 * @param playouts		the number of rollouts that will be played through this node
+	 */
+	public void addVirtualLoss(int node, int playouts){
+		visits.addAndGet(node, playouts);
+		if (entry[node] != TranspositionTable.NO_ENTRY){
+			transpositions.addVirtualLoss(entry[node], key[node], playouts);
+		}
+	}
+
+	/**
+	 * Completes visits started with {@link #addVirtualLoss(int, int)}
+	 * @param node		the node walked through
+	 * @param won		how many of the rollouts the player who just moved won
+	 */
+	public void update(int node, float won){
+		if (entry[node] != TranspositionTable.NO_ENTRY){
+			transpositions.update(entry[node], key[node], won);
+		}
+		if (won == 0){
+			return;
+		}
+		while (true){
+			int bits = wins.get(node);
+			int updated = Float.floatToRawIntBits(Float.intBitsToFloat(bits) + won);
+			if (wins.compareAndSet(node, bits, updated)){
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Records rollouts in which the node's move was played later on by the same player, before the other
+	 * player played that point
+	 * @param node			the node credited
+	 * @param playouts		the number of rollouts
+	 * @param won			how many of them the player who made the node's move won
+	 */
+	public void updateAmaf(int node, int playouts, float won){
+		amafVisits.addAndGet(node, playouts);
+		if (won == 0){
+			return;
+		}
+		while (true){
+			int bits = amafWins.get(node);
+			int updated = Float.floatToRawIntBits(Float.intBitsToFloat(bits) + won);
+			if (amafWins.compareAndSet(node, bits, updated)){
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return	the board point of the move that led to the node, or PASS
+	 */
+	public int getMove(int node){
+		return move[node];
+	}
+
+	public int getParent(int node){
+		return parent[node];
+	}
+
+	/**
+	 * @return	the first child of the node, the others follow through {@link #getNextSibling(int)}
+	 */
+	public int getFirstChild(int node){
+		return firstChild.get(node);
+	}
+
+	public int getNextSibling(int node){
+		return nextSibling[node];
+	}
+
+	/**
+	 * @return	the number of moves generated for the node, tried or not, or -1 if it has never been expanded
+	 */
+	public int getMoveCount(int node){
+		return untriedCursor.get(node) == NOT_GENERATED ? -1 : untriedCount[node];
+	}
+
+	/**
+	 * @return	the child reached by the move, or NO_NODE if it has not been expanded
+	 */
+	public int findChild(int node, int point){
+		for (int child = firstChild.get(node); child != NO_NODE; child = nextSibling[child]){
+			if (move[child] == point){
+				return child;
+			}
+		}
+		return NO_NODE;
+	}
+
+	public int getVisits(int node){
+		return visits.get(node);
+	}
+
+	public float getWins(int node){
+		return Float.intBitsToFloat(wins.get(node));
+	}
+
+	public int getAmafVisits(int node){
+		return amafVisits.get(node);
+	}
+
+	public float getAmafWins(int node){
+		return Float.intBitsToFloat(amafWins.get(node));
+	}
+
+	/**
+	 * @return	whether both players passed on the way to the node, so it has no moves and is scored as it is
+	 */
+	public boolean isTerminal(int node){
+		return terminal[node];
+	}
+
+	/**
+	 * @return	FastBoard.BLACK or FastBoard.WHITE, the player whose move led to the node
+	 */
+	public byte getPlayerJustMoved(int node){
+		return playerJustMoved[node];
+	}
+
+	/**
+	 * Replaces this tree with a copy of the subtree of another tree, which becomes the root. Must not be
+	 * called while either tree is being searched
+	 * @param other		the tree to copy from
+	 * @param node		the node of the other tree that becomes the root
+	 */
+	public void compactFrom(MCTSTree other, int node){
+		clear();
+		ensureCapacity(other.size(), other.poolTop.get());
+		if (copiedFrom.length < move.length){
+			copiedFrom = new int[move.length];
+		}
+		//breadth first, the nodes copied so far whose children have not been copied yet are the queue
+		root = copyNode(other, node, NO_NODE);
+		for (int next = root; next < nodeCount.get(); next++){
+			int previous = NO_NODE;
+			for (int child = other.firstChild.get(copiedFrom[next]); child != NO_NODE; child = other.nextSibling[child]){
+				int copy = copyNode(other, child, next);
+				if (previous == NO_NODE){
+					firstChild.set(next, copy);
+				} else {
+					nextSibling[previous] = copy;
+				}
+				previous = copy;
+			}
+		}
+	}
+
+	private int copyNode(MCTSTree other, int node, int newParent){
+		int copy = nodeCount.getAndIncrement();
+		copiedFrom[copy] = node;
+		move[copy] = other.move[node];
+		parent[copy] = newParent;
+		firstChild.set(copy, NO_NODE);
+		nextSibling[copy] = NO_NODE;
+		playerJustMoved[copy] = other.playerJustMoved[node];
+		terminal[copy] = other.terminal[node];
+		visits.set(copy, other.visits.get(node));
+		wins.set(copy, other.wins.get(node));
+		amafVisits.set(copy, other.amafVisits.get(node));
+		amafWins.set(copy, other.amafWins.get(node));
+		bias[copy] = other.bias[node];
+		key[copy] = other.key[node];
+		//the entry only carries over if both trees share the table
+		entry[copy] = transpositions == other.transpositions ? other.entry[node] : TranspositionTable.NO_ENTRY;
+		int cursor = other.untriedCursor.get(node);
+		if (cursor == NOT_GENERATED){
+			untriedCursor.set(copy, NOT_GENERATED);
+		} else {
+			//only the moves not tried yet are kept
+			int count = Math.max(0, other.untriedCount[node] - cursor);
+			int start = 0;
+			if (count > 0){
+				int from = other.untriedStart[node];
+				start = claimSlice(count);
+				System.arraycopy(other.chunk(from), (from & CHUNK_MASK) + cursor, chunk(start), start & CHUNK_MASK, count);
+			}
+			untriedStart[copy] = start;
+			untriedCount[copy] = count;
+			untriedCursor.set(copy, 0);
+		}
+		return copy;
+	}
+}
@@ -0,0 +1,23 @@
+package game.player;
+
+import app.GameState;
+import enums.PlayerColor;
+
+/**
+ * Prior knowledge about a move, worked out once when the move is added to the search tree. Selection adds
+ * the prior to the child's wins while it has few visits, bias / (visits + 1), so good looking moves are
+ * tried first and bad looking ones later, until the child's own results take over.
+ *
+ * A prior is shared by every search thread and must not keep any state between calls.
+ */
+public interface MovePrior {
+
+	/**
+	 * @param state		the position before the move
+	 * @param point		the board point played, never a pass
+	 * @param player	the player making the move
+	 * @return			the bias in wins, positive for a move worth trying early and negative for one
+	 * 					worth trying late
+	 */
+	float getBias(GameState state, int point, PlayerColor player);
+}
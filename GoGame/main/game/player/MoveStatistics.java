@@ -0,0 +1,37 @@
+package game.player;
+
+import game.model.Move;
+
+/**
+ * How one move at the root of a search did
+ */
+public class MoveStatistics {
+
+	private final Move move;
+	private final int visits;
+	private final float wins;
+
+	public MoveStatistics(Move move, int visits, float wins){
+		this.move = move;
+		this.visits = visits;
+		this.wins = wins;
+	}
+
+	public Move getMove(){
+		return move;
+	}
+
+	/**
+	 * @return	the rollouts played through the move
+	 */
+	public int getVisits(){
+		return visits;
+	}
+
+	/**
+	 * @return	the rollouts through the move won by the player making it
+	 */
+	public float getWins(){
+		return wins;
+	}
+}
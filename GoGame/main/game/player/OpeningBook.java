@@ -0,0 +1,234 @@
+package game.player;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import app.GameState;
+import enums.MoveType;
+import enums.PlayerColor;
+import game.model.FastBoard;
+import game.model.Move;
+
+/**
+ * Moves worked out ahead of time for positions early in the game, read from a file made by
+ * {@link app.OpeningBookGenerator}. The file is memory mapped, so opening it reads nothing and a lookup only
+ * touches the few pages its binary search lands on.
+ *
+ * A position is looked up by its canonical key: the smallest of the position hashes of the eight rotations
+ * and reflections of the board, see {@link GameState#getPositionHash(int)}.
+ * The move is stored for the board turned that way and turned back when it is looked up, so every
+ * orientation of a position shares one entry.
+ *
+ * The file is a header of four ints, magic number, version, board size and number of entries, followed by
+ * the entries sorted by key. Each entry is the key, the move as x + y * size or -1 for a pass, the visits
+ * the move got and its wins. Everything is big endian.
+ */
+public class OpeningBook {
+
+	private static final int MAGIC = 0x474F424B;
+	private static final int VERSION = 2;
+	private static final int HEADER_BYTES = 16;
+	private static final int ENTRY_BYTES = 20;
+	private static final int PASS = -1;
+
+	private final MappedByteBuffer entries;
+	private final int boardSize;
+	private final int size;
+
+	/**
+	 * Maps the book into memory
+	 * @param file			a book written by {@link #write(File, int, Collection)}
+	 * @throws IOException	if the file can't be read or is not a whole book
+	 */
+	public OpeningBook(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			if (channel.size() < HEADER_BYTES){
+				throw new IOException(file + " is not an opening book");
+			}
+			//the mapping stays valid after the file is closed
+			entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			in.close();
+		}
+		if (entries.getInt(0) != MAGIC || entries.getInt(4) != VERSION){
+			throw new IOException(file + " is not an opening book of version " + VERSION);
+		}
+		boardSize = entries.getInt(8);
+		size = entries.getInt(12);
+		if (size < 0 || entries.capacity() != HEADER_BYTES + (long) size * ENTRY_BYTES){
+			throw new IOException(file + " should hold " + size + " entries but is " + entries.capacity() + " bytes");
+		}
+	}
+
+	public int getBoardSize(){
+		return boardSize;
+	}
+
+	/**
+	 * @return	the number of positions in the book
+	 */
+	public int getSize(){
+		return size;
+	}
+
+	/**
+	 * Safe to call from several threads at once
+	 * @param state		the position, with the player to move next
+	 * @return			the book move for the position, turned to match the board, or null if the position is
+	 * 					not in the book, its move is not on the board or the move is not legal in it, for
+	 * 					example because of ko
+	 */
+	public Move getMove(GameState state){
+		FastBoard board = state.getBoard();
+		if (board.getBoardSize() != boardSize){
+			return null;
+		}
+		PlayerColor toMove = state.getNextToMove().getColor();
+		int symmetry = canonicalSymmetry(state);
+		int entry = find(state.getPositionHash(symmetry));
+		if (entry < 0){
+			return null;
+		}
+		int move = entries.getInt(offset(entry) + 8);
+		if (move == PASS){
+			return Move.getMoveInstance(MoveType.PASS, 0, 0);
+		} else if (move < 0 || move >= boardSize * boardSize){
+			//a damaged entry
+			return null;
+		}
+		int point = board.transform(board.point(move % boardSize, move / boardSize), FastBoard.inverse(symmetry));
+		return state.isLegalMove(point, toMove) ? board.getMove(point) : null;
+	}
+
+	/**
+	 * @param state		the position, with the player to move next
+	 * @return			the key the position is kept under, the same for every rotation and reflection of it
+	 */
+	public static long key(GameState state){
+		return state.getPositionHash(canonicalSymmetry(state));
+	}
+
+	/**
+	 * Writes a book, replacing the file
+	 * @param file			where to write it
+	 * @param boardSize		the board size every entry was made on
+	 * @param bookEntries	one entry per position
+	 * @throws IOException
+	 */
+	public static void write(File file, int boardSize, Collection<Entry> bookEntries) throws IOException {
+		List<Entry> sorted = new ArrayList<>(bookEntries);
+		Collections.sort(sorted, new Comparator<Entry>(){
+			@Override
+			public int compare(Entry a, Entry b) {
+				return Long.compare(a.key, b.key);
+			}
+		});
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(boardSize);
+			out.writeInt(sorted.size());
+			for (Entry entry : sorted){
+				out.writeLong(entry.key);
+				out.writeInt(entry.move);
+				out.writeInt(entry.visits);
+				out.writeFloat(entry.wins);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	//the symmetry that gives the smallest hash, ties are the same board so any of them will do
+	private static int canonicalSymmetry(GameState state){
+		int best = 0;
+		long bestHash = state.getPositionHash();
+		for (int symmetry = 1; symmetry<FastBoard.SYMMETRIES; symmetry++){
+			long hash = state.getPositionHash(symmetry);
+			if (hash < bestHash){
+				best = symmetry;
+				bestHash = hash;
+			}
+		}
+		return best;
+	}
+
+	//binary search over the sorted keys, -1 if the key is not there
+	private int find(long key){
+		int low = 0;
+		int high = size - 1;
+		while (low <= high){
+			int middle = (low + high) >>> 1;
+			long middleKey = entries.getLong(offset(middle));
+			if (middleKey < key){
+				low = middle + 1;
+			} else if (middleKey > key){
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	private static int offset(int entry){
+		return HEADER_BYTES + entry * ENTRY_BYTES;
+	}
+
+	/**
+	 * The move to play in one position, turned to the position's canonical orientation
+	 */
+	public static class Entry {
+
+		private final long key;
+		private final int move;
+		private final int visits;
+		private final float wins;
+
+		/**
+		 * @param state		the position, with the player to move next
+		 * @param move		the move to play there
+		 * @param visits	how many rollouts the search gave the move
+		 * @param wins		how many of them it won
+		 */
+		public Entry(GameState state, Move move, int visits, float wins){
+			FastBoard board = state.getBoard();
+			int symmetry = canonicalSymmetry(state);
+			key = state.getPositionHash(symmetry);
+			if (move.getType().equals(MoveType.PASS)){
+				this.move = PASS;
+			} else {
+				int point = board.transform(board.point(move), symmetry);
+				this.move = board.getX(point) + board.getY(point) * board.getBoardSize();
+			}
+			this.visits = visits;
+			this.wins = wins;
+		}
+
+		public long getKey(){
+			return key;
+		}
+
+		public int getVisits(){
+			return visits;
+		}
+
+		public float getWins(){
+			return wins;
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package game.player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import app.GameState;
+import enums.MoveType;
+import game.model.FastBoard;
+
+/**
+ * Search statistics of positions near the root, kept in a file so later games, and later runs, can start
+ * their searches from them. Each record holds the visits and wins of every move tried in one position,
+ * keyed by the position hash and the player to move.
+ *
+ * The file has a fixed number of record slots, worked out from the size it may take. A position may go in
+ * any of a few slots after the one its key picks. When all of them are taken the one used longest ago is
+ * replaced, so the file never grows and keeps the positions that come up most. Records are read only when
+ * their position is looked up and written as soon as they are stored, one positioned write each.
+ *
+ * Every record carries a CRC of its contents, and the header the format version and board size. A record
+ * that was only partly written, or damaged since, is treated as missing. A cache with a damaged header, or
+ * one made for another board size, size or version, is started over, but a file that is not a cache at all
+ * is never written to.
+ */
+public class StatisticsCache {
+
+	//a size that suits a cache shared by the games of a long run
+	public static final long DEFAULT_BYTES = 64L << 20;
+
+	private static final int MAGIC = 0x474F5343;
+	private static final int VERSION = 2;
+	//magic, version, board size, slots, header CRC and the clock, see clock
+	private static final int HEADER_BYTES = 28;
+	private static final int CLOCK_OFFSET = 20;
+	//key, last used, move count and CRC, followed by the moves
+	private static final int RECORD_HEADER_BYTES = 24;
+	//point as x + y * size, visits and wins
+	private static final int MOVE_BYTES = 10;
+	//slots looked at for a key before one is replaced
+	private static final int PROBES = 4;
+	//marks an empty slot, no real key is ever 0
+	private static final long EMPTY_KEY = 0;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int boardSize;
+	private final int maxMoves;
+	private final int recordBytes;
+	private final int slots;
+	//counts every use, the slot with the smallest count is the one used longest ago
+	private long clock;
+	private final ByteBuffer record;
+	private final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Opens the cache, or starts it over if the file is empty or a cache that does not match this board
+	 * size, size or version
+	 * @param path			the file, created if it is not there
+	 * @param boardSize		the board size of the games it is used for
+	 * @param maxBytes		the most the file may take
+	 * @throws IOException	if the file can't be read, or holds something other than a cache, which is left
+	 * 						as it is
+	 */
+	public StatisticsCache(File path, int boardSize, long maxBytes) throws IOException {
+		this.boardSize = boardSize;
+		maxMoves = boardSize * boardSize;
+		recordBytes = RECORD_HEADER_BYTES + maxMoves * MOVE_BYTES;
+		slots = (int) Math.min(Integer.MAX_VALUE, Math.max(PROBES, (maxBytes - HEADER_BYTES) / recordBytes));
+		record = ByteBuffer.allocate(recordBytes);
+		file = new RandomAccessFile(path, "rw");
+		channel = file.getChannel();
+		try {
+			if (!readHeader(path)){
+				//empty slots are all zeros
+				file.setLength(0);
+				file.setLength(HEADER_BYTES + (long) slots * recordBytes);
+				clock = 0;
+				writeHeader();
+			}
+		} catch (IOException e){
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return	the number of positions the cache can hold
+	 */
+	public int getCapacity(){
+		return slots;
+	}
+
+	/**
+	 * @param state		the position, with the player to move next
+	 * @return			every move stored for the position, or an empty list if it is not in the cache or its
+	 * 					record is damaged
+	 * @throws IOException
+	 */
+	public synchronized List<MoveStatistics> load(GameState state) throws IOException {
+		if (state.getBoard().getBoardSize() != boardSize){
+			return Collections.emptyList();
+		}
+		long key = key(state);
+		int slot = find(key);
+		if (slot < 0){
+			return Collections.emptyList();
+		}
+		record.clear();
+		readFully(record, offset(slot));
+		record.flip();
+		record.getLong();
+		record.getLong();
+		int count = record.getInt();
+		int storedCrc = record.getInt();
+		if (count < 0 || count > maxMoves || storedCrc != checksum(key, count)){
+			return Collections.emptyList();
+		}
+		FastBoard board = state.getBoard();
+		List<MoveStatistics> statistics = new ArrayList<>(count);
+		record.position(RECORD_HEADER_BYTES);
+		for (int i = 0; i<count; i++){
+			int move = record.getShort();
+			int visits = record.getInt();
+			float wins = record.getFloat();
+			if (move < 0 || move >= maxMoves || visits < 0 || wins < 0 || wins > visits){
+				return Collections.emptyList();
+			}
+			statistics.add(new MoveStatistics(board.getMove(board.point(move % boardSize, move / boardSize)), visits, wins));
+		}
+		touch(slot);
+		return statistics;
+	}
+
+	/**
+	 * Stores the statistics of a position, replacing any stored before. Passes are left out
+	 * @param state			the position, with the player to move next
+	 * @param statistics	the moves tried in it
+	 * @throws IOException
+	 */
+	public synchronized void store(GameState state, List<MoveStatistics> statistics) throws IOException {
+		FastBoard board = state.getBoard();
+		if (board.getBoardSize() != boardSize){
+			return;
+		}
+		long key = key(state);
+		record.clear();
+		record.position(RECORD_HEADER_BYTES);
+		int count = 0;
+		for (MoveStatistics move : statistics){
+			if (!move.getMove().getType().equals(MoveType.PASS) && count < maxMoves){
+				record.putShort((short) (move.getMove().getX() + move.getMove().getY() * boardSize));
+				record.putInt(move.getVisits());
+				record.putFloat(move.getWins());
+				count++;
+			}
+		}
+		int end = record.position();
+		record.putLong(0, key);
+		record.putLong(8, ++clock);
+		record.putInt(16, count);
+		record.putInt(20, checksum(key, count));
+		record.position(0);
+		record.limit(end);
+		writeFully(record, offset(slotFor(key)));
+		writeClock();
+	}
+
+	/**
+	 * Closes the file
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		file.close();
+	}
+
+	//the position hash, moved off the key that marks an empty slot
+	private static long key(GameState state){
+		long key = state.getPositionHash();
+		return key == EMPTY_KEY ? 1 : key;
+	}
+
+	//the slot holding the key, -1 if none does
+	private int find(long key) throws IOException {
+		for (int probe = 0; probe<PROBES; probe++){
+			int slot = probe(key, probe);
+			if (readKey(slot) == key){
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	//the slot holding the key, or else an empty one, or else the one used longest ago
+	private int slotFor(long key) throws IOException {
+		int replace = -1;
+		long oldest = Long.MAX_VALUE;
+		for (int probe = 0; probe<PROBES; probe++){
+			int slot = probe(key, probe);
+			long slotKey = readKey(slot);
+			if (slotKey == key || slotKey == EMPTY_KEY){
+				return slot;
+			}
+			long used = recordHeader.getLong(8);
+			if (used < oldest){
+				replace = slot;
+				oldest = used;
+			}
+		}
+		return replace;
+	}
+
+	private int probe(long key, int probe){
+		return (int) (((key & Long.MAX_VALUE) + probe) % slots);
+	}
+
+	//reads the key and last use of the slot into recordHeader
+	private long readKey(int slot) throws IOException {
+		recordHeader.clear();
+		readFully(recordHeader, offset(slot));
+		return recordHeader.getLong(0);
+	}
+
+	private void touch(int slot) throws IOException {
+		ByteBuffer used = ByteBuffer.allocate(8);
+		used.putLong(0, ++clock);
+		writeFully(used, offset(slot) + 8);
+		writeClock();
+	}
+
+	//the CRC of the key, the count and the moves in record, the last use is left out so it can change alone
+	private int checksum(long key, int count){
+		crc.reset();
+		ByteBuffer head = ByteBuffer.allocate(12);
+		head.putLong(key).putInt(count);
+		crc.update(head.array(), 0, 12);
+		crc.update(record.array(), RECORD_HEADER_BYTES, count * MOVE_BYTES);
+		return (int) crc.getValue();
+	}
+
+	private long offset(int slot){
+		return HEADER_BYTES + (long) slot * recordBytes;
+	}
+
+	//whether the file holds a whole cache of this board size and number of slots, reading its clock if so.
+	//False for an empty file or a cache to start over, a file that does not start like a cache is an error
+	private boolean readHeader(File path) throws IOException {
+		long length = channel.size();
+		if (length == 0){
+			return false;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.limit((int) Math.min(length, HEADER_BYTES));
+		readFully(header, 0);
+		if (length < 4 || header.getInt(0) != MAGIC){
+			throw new IOException(path + " is not a statistics cache");
+		}
+		if (length != HEADER_BYTES + (long) slots * recordBytes){
+			return false;
+		}
+		crc.reset();
+		crc.update(header.array(), 0, 16);
+		if (header.getInt(4) != VERSION || header.getInt(8) != boardSize || header.getInt(12) != slots
+				|| header.getInt(16) != (int) crc.getValue()){
+			return false;
+		}
+		clock = header.getLong(CLOCK_OFFSET);
+		return true;
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC).putInt(VERSION).putInt(boardSize).putInt(slots);
+		crc.reset();
+		crc.update(header.array(), 0, 16);
+		header.putInt((int) crc.getValue()).putLong(clock);
+		header.flip();
+		writeFully(header, 0);
+	}
+
+	//the clock is not covered by the header CRC, a clock that was not written only makes slots look older
+	private void writeClock() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		buffer.putLong(0, clock);
+		writeFully(buffer, CLOCK_OFFSET);
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()){
+			if (channel.read(buffer, position + buffer.position()) < 0){
+				throw new IOException("cache file ends early");
+			}
+		}
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()){
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package game.player;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import app.GameState;
+
+/**
+ * Visit and win counts shared by every node of a search tree that reaches the same position with the same
+ * player to move, so a position reached by different move orders learns from all of them.
+ *
+ * The table has a fixed number of entries. A position may go in any of a few entries next to the slot its
+ * key hashes to. When all of them are taken, the entry least worth keeping is replaced: first one that has
+ * not been used since an earlier search, then the one with the fewest visits. Nodes remember which entry
+ * they were given and check its key before every use, so a replaced entry is simply no longer shared.
+ *
+ * Like the tree, the table can be used by several search threads at once without locks. An update racing
+ * with the replacement of its entry can leave a few visits on the new position, which only adds noise.
+ */
+public class TranspositionTable {
+
+	public static final int NO_ENTRY = -1;
+
+	//entries looked at for a key before one is replaced
+	private static final int PROBES = 4;
+	//marks an empty entry, no real key is ever 0
+	private static final long EMPTY_KEY = 0;
+
+	private final int mask;
+	private final AtomicLongArray keys;
+	private final AtomicIntegerArray visits;
+	//float bits, like the tree
+	private final AtomicIntegerArray wins;
+	//the search each entry was last used in
+	private final int[] used;
+	private volatile int generation;
+
+	/**
+	 * @param capacity	number of positions the table can hold, rounded up to a power of two
+	 */
+	public TranspositionTable(int capacity){
+		int size = Integer.highestOneBit(Math.max(PROBES, capacity - 1) << 1);
+		mask = size - 1;
+		keys = new AtomicLongArray(size);
+		visits = new AtomicIntegerArray(size);
+		wins = new AtomicIntegerArray(size);
+		used = new int[size];
+	}
+
+	public int getCapacity(){
+		return mask + 1;
+	}
+
+	/**
+	 * @param positionHash	the hash of the position and the player to move, see {@link GameState#getPositionHash()}
+	 * @return				the key of the position, never the key that marks an empty entry
+	 */
+	public static long key(long positionHash){
+		return positionHash == EMPTY_KEY ? 1 : positionHash;
+	}
+
+	/**
+	 * Starts a new search, entries that are not used in it are the first to be replaced
+	 */
+	public void nextGeneration(){
+		generation++;
+	}
+
+	/**
+	 * Drops every entry
+	 */
+	public void clear(){
+		for (int i = 0; i<=mask; i++){
+			keys.set(i, EMPTY_KEY);
+			visits.set(i, 0);
+			wins.set(i, 0);
+		}
+	}
+
+	/**
+	 * Finds the entry of the position, taking over an empty or replaceable entry if it has none
+	 * @param key	a key made by {@link #key(long)}
+	 * @return		the entry, or NO_ENTRY if another thread took the entry that was picked first
+	 */
+	public int lookup(long key){
+		int start = (int) key & mask;
+		int victim = NO_ENTRY;
+		for (int i = 0; i<PROBES; i++){
+			int entry = (start + i) & mask;
+			long entryKey = keys.get(entry);
+			if (entryKey == key){
+				used[entry] = generation;
+				return entry;
+			}
+			if (entryKey == EMPTY_KEY){
+				victim = entry;
+				break;
+			}
+			if (victim == NO_ENTRY || worthLess(entry, victim)){
+				victim = entry;
+			}
+		}
+		long victimKey = keys.get(victim);
+		if (victimKey == key){
+			return victim;
+		}
+		visits.set(victim, 0);
+		wins.set(victim, 0);
+		used[victim] = generation;
+		return keys.compareAndSet(victim, victimKey, key) ? victim : NO_ENTRY;
+	}
+
+	//whether the first entry should be replaced before the second
+	private boolean worthLess(int entry, int other){
+		boolean stale = used[entry] != generation;
+		boolean otherStale = used[other] != generation;
+		if (stale != otherStale){
+			return stale;
+		}
+		return visits.get(entry) < visits.get(other);
+	}
+
+	/**
+	 * @return	whether the entry still belongs to the position with the key
+	 */
+	public boolean matches(int entry, long key){
+		return keys.get(entry) == key;
+	}
+
+	public int getVisits(int entry){
+		return visits.get(entry);
+	}
+
+	public float getWins(int entry){
+		return Float.intBitsToFloat(wins.get(entry));
+	}
+
+	/**
+	 * @see MCTSTree#addVirtualLoss(int, int)
+	 */
+	public void addVirtualLoss(int entry, long key, int playouts){
+		if (matches(entry, key)){
+			visits.addAndGet(entry, playouts);
+		}
+	}
+
+	/**
+	 * @see MCTSTree#update(int, float)
+	 */
+	public void update(int entry, long key, float won){
+		if (!matches(entry, key)){
+			return;
+		}
+		used[entry] = generation;
+		if (won == 0){
+			return;
+		}
+		while (true){
+			int bits = wins.get(entry);
+			int updated = Float.floatToRawIntBits(Float.intBitsToFloat(bits) + won);
+			if (wins.compareAndSet(entry, bits, updated)){
+				return;
+			}
+		}
+	}
+}
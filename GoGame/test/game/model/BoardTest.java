@@ -100,4 +100,54 @@ public class BoardTest {
 		assertFalse(b.isEye(Move.getMoveInstance(MoveType.PASS, 2, 2), white.getColor()));
 	}
 
+	@Test
+	public void testLibertiesAfterMergeAndCapture() throws IOException, MoveException {
+		String in = 
+				"+W+\n" +
+				"WB+\n" +
+				"+B+";
+		Board b = Board.deserialize(in);
+		assertEquals(Integer.valueOf(3), b.getStoneGroupLibertiesAtLocation(1, 1));
+		b.makeMove(Move.getMoveInstance(MoveType.NORMAL, 2, 1), white.getColor());
+		b.makeMove(Move.getMoveInstance(MoveType.NORMAL, 0, 2), white.getColor());
+		assertEquals(Integer.valueOf(1), b.getStoneGroupLibertiesAtLocation(1, 2));
+		b.makeMove(Move.getMoveInstance(MoveType.NORMAL, 2, 2), white.getColor());
+		assertEquals(Integer.valueOf(3), b.getStoneGroupLibertiesAtLocation(1, 0));
+		assertEquals(Integer.valueOf(3), b.getStoneGroupLibertiesAtLocation(2, 1));
+		assertEquals(Integer.valueOf(3), b.getStoneGroupLibertiesAtLocation(0, 2));
+	}
+
+	@Test
+	public void testCloneIsIndependent() throws IOException, MoveException {
+		String in = 
+				"+W+\n" +
+				"WB+\n" +
+				"+B+";
+		Board b = Board.deserialize(in);
+		Board clone = b.clone();
+		assertEquals(b.serialize(), clone.serialize());
+		clone.makeMove(Move.getMoveInstance(MoveType.NORMAL, 2, 1), white.getColor());
+		assertEquals(Integer.valueOf(3), b.getStoneGroupLibertiesAtLocation(1, 1));
+		assertEquals(Integer.valueOf(2), clone.getStoneGroupLibertiesAtLocation(1, 1));
+		assertTrue(b.isLegalMove(Move.getMoveInstance(MoveType.NORMAL, 2, 1), white.getColor()));
+	}
+
+	@Test
+	public void testFullSizeBoards() throws MoveException {
+		for (int size : new int[]{13, 19}){
+			Board b = new Board(size);
+			assertEquals(size, b.getBoardSize());
+			Move corner = Move.getMoveInstance(MoveType.NORMAL, size - 1, size - 1);
+			b.makeMove(corner, black.getColor());
+			assertEquals(Integer.valueOf(2), b.getStoneGroupLibertiesAtLocation(size - 1, size - 1));
+			
+			FastBoard f = new FastBoard(size);
+			assertEquals(size, f.getBoardSize());
+			assertEquals(size * size, f.getEmptyPoints().size());
+			f.makeMove(corner, black.getColor());
+			assertEquals(size * size - 1, f.getEmptyPoints().size());
+			assertEquals(2, f.getLiberties(f.point(corner)));
+		}
+	}
+
 }
@@ -0,0 +1,299 @@
+package game.model;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import enums.PlayerColor;
+import exception.MoveException;
+
+import org.junit.Test;
+
+public class FastBoardTest {
+
+	@Test
+	public void testMakeMove() throws MoveException {
+		FastBoard b = new FastBoard(3);
+		int point = b.point(0, 0);
+		assertTrue(b.isLegalMove(point, PlayerColor.WHITE));
+		b.makeMove(point, PlayerColor.WHITE);
+		assertFalse(b.isLegalMove(point, PlayerColor.WHITE));
+		assertEquals(FastBoard.WHITE, b.getColor(point));
+	}
+
+	@Test
+	public void testSelfCaptureIsNotAllowed() throws MoveException, IOException {
+		String in =
+				"+W+\n" +
+				"W+W\n" +
+				"+W+";
+		FastBoard b = FastBoard.deserialize(in);
+		assertFalse(b.isLegalMove(b.point(1, 1), PlayerColor.BLACK));
+	}
+
+	@Test
+	public void testSelfCaptureIsAllowedIfPlayerCapturesInTheProcess() throws MoveException, IOException {
+		String in =
+				"B++\n" +
+				"WB+\n" +
+				"+WB";
+		FastBoard b = FastBoard.deserialize(in);
+		assertTrue(b.isLegalMove(b.point(0, 2), PlayerColor.BLACK));
+	}
+
+	@Test
+	public void testSingleCapture() throws IOException, MoveException {
+		String in =
+				"+W+\n" +
+				"WBW\n" +
+				"+++";
+		FastBoard b = FastBoard.deserialize(in);
+		int captured = b.makeMove(b.point(1, 2), PlayerColor.WHITE);
+		assertEquals(1, captured);
+		assertEquals(b.point(1, 1), b.getCaptured(0));
+		assertTrue(b.isLegalMove(b.point(1, 1), PlayerColor.WHITE));
+		assertEquals(5, b.getScore(PlayerColor.WHITE));
+		assertEquals(-1, b.getScore(PlayerColor.BLACK));
+		assertEquals(4, b.getStoneCount(PlayerColor.WHITE));
+		assertEquals(0, b.getStoneCount(PlayerColor.BLACK));
+		b.undo();
+		assertEquals(3, b.getStoneCount(PlayerColor.WHITE));
+		assertEquals(1, b.getStoneCount(PlayerColor.BLACK));
+	}
+
+	@Test
+	public void testMultiCatpure() throws IOException, MoveException {
+		String in =
+				"+++++\n" +
+				"WW+WW\n" +
+				"BB+BB\n" +
+				"WW+WW\n" +
+				"+++++";
+		FastBoard b = FastBoard.deserialize(in);
+		b.makeMove(b.point(2, 2), PlayerColor.BLACK);
+		b.makeMove(b.point(2, 1), PlayerColor.WHITE);
+		assertEquals(5, b.getScore(PlayerColor.WHITE));
+		assertEquals(b.point(2, 3), b.getAtariLiberty(b.point(0, 2)));
+		b.makeMove(b.point(2, 3), PlayerColor.BLACK);
+		int[] buffer = new int[25];
+		int captured = b.makeMove(b.point(2, 4), PlayerColor.WHITE, buffer);
+		assertEquals(15, b.getScore(PlayerColor.WHITE));
+		assertEquals(-6, b.getScore(PlayerColor.BLACK));
+		assertEquals(6, captured);
+		int[] points = Arrays.copyOf(buffer, captured);
+		Arrays.sort(points);
+		assertArrayEquals(new int[]{b.point(0, 2), b.point(1, 2), b.point(2, 2), b.point(3, 2), b.point(4, 2),
+				b.point(2, 3)}, points);
+	}
+
+	@Test
+	public void testIsEye() throws IOException, MoveException {
+		String in =
+				"+W+W+\n" +
+				"WW++W\n" +
+				"+++++\n" +
+				"BBB++\n" +
+				"++B++";
+		FastBoard b = FastBoard.deserialize(in);
+		assertTrue(b.isEye(b.point(0, 0), PlayerColor.WHITE));
+
+		assertFalse(b.isEye(b.point(4, 0), PlayerColor.WHITE));
+		assertFalse(b.isEye(b.point(0, 4), PlayerColor.BLACK));
+		assertFalse(b.isEye(b.point(0, 4), PlayerColor.WHITE));
+		assertFalse(b.isEye(b.point(2, 2), PlayerColor.WHITE));
+	}
+
+	@Test
+	public void testGroupsInAtari() throws IOException, MoveException {
+		String in =
+				"+B+\n" +
+				"BW+\n" +
+				"+++";
+		FastBoard b = FastBoard.deserialize(in);
+		int[] groups = new int[9];
+		assertEquals(0, b.getGroupsInAtari(groups));
+		b.makeMove(b.point(2, 1), PlayerColor.BLACK);
+		assertEquals(1, b.getGroupsInAtari(groups));
+		assertEquals(b.point(1, 1), groups[0]);
+		assertEquals(b.point(1, 2), b.getAtariLiberty(b.point(1, 1)));
+		assertEquals(FastBoard.NO_POINT, b.getAtariLiberty(b.point(1, 0)));
+	}
+
+	@Test
+	public void testLegalPoints() throws IOException, MoveException {
+		String in =
+				"+W+\n" +
+				"WBW\n" +
+				"+++";
+		FastBoard b = FastBoard.deserialize(in);
+		PointSet black = b.getLegalPoints(PlayerColor.BLACK);
+		PointSet white = b.getLegalPoints(PlayerColor.WHITE);
+		assertFalse(black.contains(b.point(0, 0)));
+		assertTrue(white.contains(b.point(0, 0)));
+		assertEquals(5, white.size());
+		int depth = b.getUndoDepth();
+		b.makeMove(b.point(1, 2), PlayerColor.WHITE);
+		assertTrue(white.contains(b.point(1, 1)));
+		assertFalse(black.contains(b.point(1, 1)));
+		assertFalse(black.contains(b.point(1, 2)));
+		assertFalse(white.contains(b.point(1, 2)));
+		b.undoTo(depth);
+		assertEquals(5, white.size());
+		assertTrue(black.contains(b.point(1, 2)));
+		assertFalse(black.contains(b.point(1, 1)));
+	}
+
+	@Test
+	public void testPassAlive() throws IOException, MoveException {
+		String in =
+				"+B+B+\n" +
+				"BBBBB\n" +
+				"WWWWW\n" +
+				"+W+W+\n" +
+				"W+W+W";
+		FastBoard b = FastBoard.deserialize(in);
+		assertEquals(FastBoard.BLACK, b.getPassAliveOwner(b.point(2, 0)));
+		assertEquals(FastBoard.WHITE, b.getPassAliveOwner(b.point(0, 4)));
+		assertEquals(FastBoard.WHITE, b.getPassAliveOwner(b.point(1, 4)));
+		assertTrue(b.isSettled());
+		b.captureDeadGroups();
+		assertEquals(3, b.getScore(PlayerColor.BLACK));
+		assertEquals(5, b.getScore(PlayerColor.WHITE));
+	}
+
+	@Test
+	public void testCaptureDeadGroupsInsidePassAliveTerritory() throws IOException, MoveException {
+		String in =
+				"W+B+B\n" +
+				"+BBBB\n" +
+				"BB+++\n" +
+				"+++++\n" +
+				"+++++";
+		FastBoard b = FastBoard.deserialize(in);
+		assertEquals(FastBoard.BLACK, b.getPassAliveOwner(b.point(0, 0)));
+		assertEquals(FastBoard.EMPTY, b.getPassAliveOwner(b.point(2, 3)));
+		assertFalse(b.isSettled());
+		b.captureDeadGroups();
+		assertEquals(FastBoard.EMPTY, b.getColor(b.point(0, 0)));
+		assertEquals(1, b.getStonesCaptures(PlayerColor.BLACK));
+		b.undo();
+		assertEquals(FastBoard.WHITE, b.getColor(b.point(0, 0)));
+		assertEquals(0, b.getStonesCaptures(PlayerColor.BLACK));
+	}
+
+	@Test
+	public void testPatternsFollowCapturesAndUndo() throws IOException, MoveException {
+		String in =
+				"+W+\n" +
+				"WBW\n" +
+				"+++";
+		FastBoard b = FastBoard.deserialize(in);
+		int depth = b.getUndoDepth();
+		b.makeMove(b.point(1, 2), PlayerColor.WHITE);
+		assertEquals(patternOf(b, b.point(1, 1)), b.getPattern(b.point(1, 1)));
+		assertEquals(patternOf(b, b.point(0, 0)), b.getPattern(b.point(0, 0)));
+		b.undoTo(depth);
+		for (int p : b.getPoints()){
+			assertEquals(patternOf(b, p), b.getPattern(p));
+		}
+	}
+
+	@Test
+	public void testPatternMatchesHaneInEveryOrientation() throws IOException, MoveException {
+		String in =
+				"+++++\n" +
+				"+BWB+\n" +
+				"+++++\n" +
+				"+++++\n" +
+				"+++++";
+		FastBoard b = FastBoard.deserialize(in);
+		assertTrue(Pattern3x3.matches(b.getPattern(b.point(2, 2))));
+		assertFalse(Pattern3x3.matches(b.getPattern(b.point(2, 3))));
+		FastBoard swapped = FastBoard.deserialize(
+				"+++++\n" +
+				"+++++\n" +
+				"+++++\n" +
+				"+WBW+\n" +
+				"+++++");
+		assertTrue(Pattern3x3.matches(swapped.getPattern(swapped.point(2, 2))));
+	}
+
+	@Test
+	public void testSelfAtari() throws IOException, MoveException {
+		String in =
+				"+W+\n" +
+				"WB+\n" +
+				"+++";
+		FastBoard b = FastBoard.deserialize(in);
+		assertTrue(b.isSelfAtari(b.point(0, 0), PlayerColor.BLACK));
+		assertFalse(b.isSelfAtari(b.point(2, 1), PlayerColor.BLACK));
+		b.makeMove(b.point(1, 2), PlayerColor.WHITE);
+		assertFalse(b.isSelfAtari(b.point(0, 0), PlayerColor.WHITE));
+	}
+
+	@Test
+	public void testCloneAnalyzesItsOwnPassAliveGroups() throws MoveException {
+		FastBoard b = new FastBoard(5);
+		assertEquals(FastBoard.EMPTY, b.getPassAliveOwner(b.point(0, 0)));
+		FastBoard clone = b.clone();
+		clone.makeMove(clone.point(1, 0), PlayerColor.BLACK);
+		clone.makeMove(clone.point(3, 0), PlayerColor.BLACK);
+		for (int x = 0; x<5; x++){
+			clone.makeMove(clone.point(x, 1), PlayerColor.BLACK);
+		}
+		assertEquals(FastBoard.BLACK, clone.getPassAliveOwner(clone.point(0, 0)));
+		assertEquals(FastBoard.EMPTY, b.getPassAliveOwner(b.point(0, 0)));
+		assertEquals(FastBoard.BLACK, clone.getPassAliveOwner(clone.point(2, 0)));
+	}
+
+	@Test
+	public void testSymmetricHashMatchesTransformedBoard() throws IOException, MoveException {
+		String in =
+				"BW++\n" +
+				"+B++\n" +
+				"+++W\n" +
+				"++++";
+		FastBoard b = FastBoard.deserialize(in);
+		for (int symmetry = 0; symmetry<FastBoard.SYMMETRIES; symmetry++){
+			FastBoard transformed = new FastBoard(4);
+			for (int point : b.getPoints()){
+				if (b.getColor(point) != FastBoard.EMPTY){
+					PlayerColor player = b.getColor(point) == FastBoard.BLACK ? PlayerColor.BLACK : PlayerColor.WHITE;
+					transformed.makeMove(b.transform(point, symmetry), player);
+				}
+				assertEquals(point, b.transform(b.transform(point, symmetry), FastBoard.inverse(symmetry)));
+			}
+			assertEquals(transformed.getHash(), b.getSymmetricHash(symmetry));
+		}
+		assertEquals(b.point(3, 0), b.transform(b.point(0, 0), 1));
+		assertEquals(b.point(1, 3), b.transform(b.point(0, 1), 5));
+	}
+
+	//the pattern code worked out from scratch
+	private static int patternOf(FastBoard b, int point){
+		int code = 0;
+		int[] offsets = b.getPatternOffsets();
+		for (int i = 0; i<offsets.length; i++){
+			code |= b.getColor(point + offsets[i]) << 2 * i;
+		}
+		return code;
+	}
+
+	@Test
+	public void testCopyFrom() throws IOException, MoveException {
+		String in =
+				"+W+\n" +
+				"WB+\n" +
+				"+B+";
+		FastBoard b = FastBoard.deserialize(in);
+		FastBoard copy = new FastBoard(3);
+		copy.copyFrom(b);
+		assertEquals(b.serialize(), copy.serialize());
+		assertEquals(b.getHash(), copy.getHash());
+		copy.makeMove(copy.point(2, 1), PlayerColor.WHITE);
+		assertEquals(3, b.getLiberties(b.point(1, 1)));
+		assertEquals(2, copy.getLiberties(copy.point(1, 1)));
+	}
+
+}
@@ -65,4 +65,94 @@ public class GameStateTest {
 		assertEquals(Move.getMoveInstance(MoveType.NORMAL, 3, 0), g.getLastMove(PlayerColor.BLACK));
 		assertEquals(Move.getMoveInstance(MoveType.NORMAL, 2, 0), g.getLastMove(PlayerColor.WHITE));
 	}
+	@Test
+	public void testSuperko() throws MoveException {
+		List<Player> players = new ArrayList<>();
+		players.add(new HumanPlayer(PlayerColor.BLACK));
+		players.add(new HumanPlayer(PlayerColor.WHITE));
+		GameState g = new GameState(6, players);
+
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 1, 0));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 2, 0));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 0, 1));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 3, 1));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 1, 2));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 2, 2));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 2, 1));
+		long beforeCapture = g.getPositionHash();
+		//capture, then both players pass so the simple ko rule no longer applies
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 1, 1));
+		g.addMove(Move.getMoveInstance(MoveType.PASS, 0, 0));
+		long afterPass = g.getPositionHash();
+		g.addMove(Move.getMoveInstance(MoveType.PASS, 0, 0));
+		assertNotEquals(afterPass, g.getPositionHash());
+		
+		Move retake = Move.getMoveInstance(MoveType.NORMAL, 2, 1);
+		assertTrue(g.isLegalMove(retake, PlayerColor.BLACK));
+		g.setSuperko(true);
+		assertFalse(g.isLegalMove(retake, PlayerColor.BLACK));
+		
+		g.setSuperko(false);
+		g.addMove(retake);
+		assertEquals(beforeCapture, g.getPositionHash());
+	}
+	
+	@Test
+	public void testUndo() throws MoveException {
+		List<Player> players = new ArrayList<>();
+		players.add(new HumanPlayer(PlayerColor.BLACK));
+		players.add(new HumanPlayer(PlayerColor.WHITE));
+		GameState g = new GameState(6, players);
+
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 1, 0));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 2, 0));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 0, 1));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 3, 1));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 1, 2));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 2, 2));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 2, 1));
+		String beforeCapture = g.getBoard().serialize();
+		long hashBeforeCapture = g.getPositionHash();
+		//capture, which makes retaking the ko illegal
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 1, 1));
+		assertFalse(g.isLegalMove(Move.getMoveInstance(MoveType.NORMAL, 2, 1), PlayerColor.BLACK));
+		
+		g.addMove(Move.getMoveInstance(MoveType.UNDO, 0, 0));
+		assertEquals(beforeCapture, g.getBoard().serialize());
+		assertEquals(hashBeforeCapture, g.getPositionHash());
+		assertEquals(PlayerColor.WHITE, g.getNextToMove().getColor());
+		assertEquals(Move.getMoveInstance(MoveType.NORMAL, 2, 1), g.getLastMove());
+		assertEquals(0, g.getBoard().getStonesCaptures(PlayerColor.WHITE));
+		assertEquals(1, g.getBoard().getLiberties(g.getBoard().point(2, 1)));
+		
+		g.undoMove();
+		assertTrue(g.isLegalMove(Move.getMoveInstance(MoveType.NORMAL, 2, 1), PlayerColor.BLACK));
+		assertEquals(6, g.getTurn());
+	}
+	
+	@Test
+	public void testCopyOnlyUndoesMovesAfterTheCopy() throws MoveException {
+		List<Player> players = new ArrayList<>();
+		players.add(new HumanPlayer(PlayerColor.BLACK));
+		players.add(new HumanPlayer(PlayerColor.WHITE));
+		GameState g = new GameState(6, players);
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 1, 0));
+		g.addMove(Move.getMoveInstance(MoveType.NORMAL, 2, 0));
+		
+		GameState copy = new GameState(6, players);
+		copy.copyFrom(g);
+		assertEquals(0, copy.getBoard().getUndoDepth());
+		String copied = copy.getBoard().serialize();
+		copy.addMove(Move.getMoveInstance(MoveType.NORMAL, 3, 3));
+		copy.undoMove();
+		assertEquals(copied, copy.getBoard().serialize());
+		assertEquals(PlayerColor.BLACK, copy.getNextToMove().getColor());
+		try {
+			copy.undoMove();
+			fail("moves from before the copy were undone");
+		} catch (MoveException e) {
+			assertEquals(2, copy.getTurn());
+		}
+		assertEquals(Move.getMoveInstance(MoveType.NORMAL, 2, 0), copy.getLastMove());
+	}
 }
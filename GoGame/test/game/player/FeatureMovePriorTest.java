@@ -0,0 +1,72 @@
+package game.player;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import app.GameState;
+import enums.MoveType;
+import enums.PlayerColor;
+import exception.MoveException;
+import game.model.FastBoard;
+import game.model.Move;
+
+public class FeatureMovePriorTest {
+
+	private static final int SIZE = 7;
+	private static final FeatureMovePrior PRIOR = new FeatureMovePrior();
+
+	@Test
+	public void testCapture() throws MoveException {
+		//white's stone in the middle has one liberty left, below it
+		GameState state = play(2, 3, 3, 3, 4, 3, -1, 3, 2, -1);
+		assertEquals(4, bias(state, 3, 4, PlayerColor.BLACK), 0);
+	}
+
+	@Test
+	public void testSaveFromAtari() throws MoveException {
+		//black's stone in the middle has one liberty left, below it, and extending gives it three
+		GameState state = play(3, 3, 2, 3, -1, 4, 3, -1, 3, 2, -1);
+		assertEquals(2, bias(state, 3, 4, PlayerColor.BLACK), 0);
+	}
+
+	@Test
+	public void testSelfAtari() throws MoveException {
+		GameState state = play(-1, 2, 3, -1, 4, 3, -1, 3, 2, -1);
+		assertEquals(-4, bias(state, 3, 3, PlayerColor.BLACK), 0);
+	}
+
+	@Test
+	public void testEdge() throws MoveException {
+		GameState state = play();
+		assertEquals(-6.1f, bias(state, 0, 3, PlayerColor.BLACK), 0);
+		assertEquals(-6.1f, bias(state, 6, 6, PlayerColor.BLACK), 0);
+		assertEquals(0, bias(state, 3, 3, PlayerColor.BLACK), 0);
+	}
+
+	@Test
+	public void testNearTheLastMove() throws MoveException {
+		GameState state = play(1, 1);
+		assertEquals(1, bias(state, 3, 3, PlayerColor.WHITE), 0);
+		assertEquals(0, bias(state, 4, 4, PlayerColor.WHITE), 0);
+	}
+
+	private static float bias(GameState state, int x, int y, PlayerColor player){
+		FastBoard board = state.getBoard();
+		return PRIOR.getBias(state, board.point(x, y), player);
+	}
+
+	//plays the points given as x, y pairs from black on, -1 for a pass
+	private static GameState play(int... moves) throws MoveException {
+		GameState state = MCTSTreeTest.newState(SIZE);
+		FastBoard board = state.getBoard();
+		for (int i = 0; i<moves.length; i++){
+			if (moves[i] < 0){
+				state.addMove(Move.getMoveInstance(MoveType.PASS, 0, 0));
+			} else {
+				state.addMove(board.getMove(board.point(moves[i], moves[++i])));
+			}
+		}
+		return state;
+	}
+}
@@ -0,0 +1,271 @@
+package game.player;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import app.GameState;
+import enums.MoveType;
+import enums.PlayerColor;
+import enums.SearchMode;
+import exception.MoveException;
+import game.model.FastBoard;
+import game.model.Move;
+
+public class MCTSComputerPlayerTest {
+
+	private static final int ITERATIONS = 300;
+
+	@Test
+	public void testSeveralThreadsPlayALegalMove() throws MoveException {
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 3);
+		GameState state = newState(player);
+		Move move = player.getMove(state);
+		assertTrue(state.isLegalMove(move, PlayerColor.BLACK));
+		assertTrue(player.getPlayoutsPerSecond() > 0);
+	}
+
+	@Test
+	public void testSingleThreadSearchUsesTheWholeBudget() throws MoveException {
+		assertRootVisits(SearchMode.SHARED_TREE, 1);
+	}
+
+	@Test
+	public void testSharedTreeSearchUsesTheWholeBudget() throws MoveException {
+		assertRootVisits(SearchMode.SHARED_TREE, 3);
+	}
+
+	@Test
+	public void testRootParallelSearchUsesTheWholeBudget() throws MoveException {
+		assertRootVisits(SearchMode.ROOT_PARALLEL, 3);
+	}
+
+	@Test
+	public void testLeafParallelSearchUsesTheWholeBudget() throws MoveException {
+		assertRootVisits(SearchMode.LEAF_PARALLEL, 3);
+	}
+
+	@Test
+	public void testTreeIsKeptAfterAnOpponentPass() throws MoveException {
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		player.setSeed(1);
+		GameState state = newState(player);
+		state.addMove(player.getMove(state));
+		state.addMove(Move.getMoveInstance(MoveType.PASS, 0, 0));
+		player.getMove(state);
+		//the visits the pass got in the first search are still there
+		assertTrue(rootVisits(player) > ITERATIONS);
+	}
+
+	@Test
+	public void testPonderedVisitsCountTowardsTheBudget() throws MoveException {
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		player.setSeed(1);
+		player.setPondering(true);
+		GameState state = newState(player);
+		Move played = player.getMove(state);
+		state.addMove(played);
+		//lets the pondering use its whole budget, which tries every reply
+		player.awaitBackground();
+		FastBoard board = state.getBoard();
+		Move reply = board.getMove(board.point(0, 0));
+		state.addMove(reply.equals(played) ? board.getMove(board.point(4, 4)) : reply);
+		player.getMove(state);
+		player.stopPondering();
+		assertTrue(player.getLastPlayouts() < ITERATIONS);
+		//the reply's own first visit is the one that went through none of its children
+		assertEquals(ITERATIONS - 1, rootVisits(player));
+	}
+
+	@Test
+	public void testRolloutCreditsAmafToTheSameColor() throws MoveException {
+		GameState state = MCTSTreeTest.newState(3);
+		FastBoard board = state.getBoard();
+		MCTSTree tree = new MCTSTree();
+		tree.setRaveEquivalence(100);
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		MCTSTreeTest.expandAll(tree, root, state, random);
+		int leaf = tree.findChild(root, board.point(0, 0));
+		state.addMove(board.getMove(board.point(0, 0)));
+		MCTSTreeTest.expandAll(tree, leaf, state, random);
+		state.undoMove();
+
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		MCTSComputerPlayer.SearchWorker worker = player.new SearchWorker();
+		worker.reset(state, new AtomicInteger(), tree, random);
+		//black walks down to the leaf, then white, black and white again in the rollout
+		play(worker.scratch, 0, 0);
+		worker.leafTurn = worker.scratch.getTurn();
+		play(worker.scratch, 1, 1);
+		play(worker.scratch, 2, 2);
+		play(worker.scratch, 0, 2);
+		//black won
+		worker.updateAmaf(leaf, 1, 1);
+
+		assertAmaf(tree, root, board.point(0, 0), 1, 1);
+		assertAmaf(tree, root, board.point(2, 2), 1, 1);
+		assertAmaf(tree, root, board.point(1, 1), 0, 0);
+		assertAmaf(tree, root, board.point(0, 2), 0, 0);
+		assertAmaf(tree, root, MCTSTree.PASS, 0, 0);
+		assertAmaf(tree, leaf, board.point(1, 1), 1, 0);
+		assertAmaf(tree, leaf, board.point(0, 2), 1, 0);
+		assertAmaf(tree, leaf, board.point(2, 2), 0, 0);
+		assertAmaf(tree, leaf, board.point(1, 0), 0, 0);
+	}
+
+	@Test
+	public void testSearchStopsWhereBothPassed() throws MoveException {
+		GameState state = MCTSTreeTest.newState(3);
+		state.addMove(Move.getMoveInstance(MoveType.PASS, 0, 0));
+		state.addMove(Move.getMoveInstance(MoveType.PASS, 0, 0));
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		MCTSComputerPlayer.SearchWorker worker = player.new SearchWorker();
+		worker.reset(state, new AtomicInteger(), tree, new SplittableRandom(1));
+		assertEquals(root, worker.selectAndExpand(1));
+		assertEquals(1, tree.size());
+		//scored as it is, without a move played
+		worker.rollout();
+		assertEquals(state.getTurn(), worker.scratch.getTurn());
+	}
+
+	@Test
+	public void testLengthCapScoresTheBoard() throws MoveException {
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		player.setMaxRolloutMoves(3);
+		GameState state = MCTSTreeTest.newState(5);
+		MCTSComputerPlayer.SearchWorker worker = player.new SearchWorker();
+		worker.reset(state, new AtomicInteger(), new MCTSTree(), new SplittableRandom(1));
+		boolean blackWon = worker.rollout();
+		GameState end = worker.scratch;
+		assertEquals(3, end.getTurn() - state.getTurn());
+		assertEquals(end.getScore(PlayerColor.BLACK) > end.getScore(PlayerColor.WHITE), blackWon);
+
+		player.setSeed(1);
+		player.getMove(newState(player));
+		player.stopPondering();
+		assertTrue(player.getLengthCutoffs() > 0);
+		assertEquals(0, player.getMercyCutoffs());
+		assertTrue(player.getAverageRolloutLength() <= 3);
+	}
+
+	@Test
+	public void testMercyRuleEndsTheRolloutForTheLeader() throws MoveException {
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		player.setMercyMargin(1);
+		GameState state = MCTSTreeTest.newState(5);
+		play(state, 2, 2);
+		MCTSComputerPlayer.SearchWorker worker = player.new SearchWorker();
+		worker.reset(state, new AtomicInteger(), new MCTSTree(), new SplittableRandom(1));
+		//black's lead from before the rollout does not count, white's first stone is enough
+		assertFalse(worker.rollout());
+		assertEquals(1, worker.scratch.getTurn() - state.getTurn());
+
+		player.setSeed(1);
+		player.getMove(newState(player));
+		player.stopPondering();
+		assertTrue(player.getMercyCutoffs() > 0);
+		assertEquals(0, player.getLengthCutoffs());
+	}
+
+	@Test
+	public void testCapturesCountTowardsTheLead() throws MoveException {
+		GameState state = MCTSTreeTest.newState(5);
+		play(state, 1, 0);
+		play(state, 0, 0);
+		assertEquals(0, MCTSComputerPlayer.blackLead(state.getBoard()));
+		//two stones against none on the board, and the one taken
+		play(state, 0, 1);
+		assertEquals(3, MCTSComputerPlayer.blackLead(state.getBoard()));
+	}
+
+	@Test
+	public void testSameSeedSearchesTheSame() throws MoveException {
+		List<MoveStatistics> first = seededSearch(42);
+		List<MoveStatistics> second = seededSearch(42);
+		assertEquals(first.size(), second.size());
+		for (int i = 0; i<first.size(); i++){
+			assertEquals(first.get(i).getMove(), second.get(i).getMove());
+			assertEquals(first.get(i).getVisits(), second.get(i).getVisits());
+			assertEquals(first.get(i).getWins(), second.get(i).getWins(), 0);
+		}
+	}
+
+	@Test
+	public void testWarmStartIsNotPonderedWork() throws MoveException, IOException {
+		File file = File.createTempFile("statistics", ".bin");
+		file.deleteOnExit();
+		StatisticsCache cache = new StatisticsCache(file, 5, 1 << 16);
+		MCTSComputerPlayer first = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		first.setStatisticsCache(cache);
+		first.setSeed(1);
+		first.getMove(newState(first));
+		first.stopPondering();
+
+		MCTSComputerPlayer second = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		second.setStatisticsCache(cache);
+		second.setSeed(1);
+		second.setPondering(true);
+		second.getMove(newState(second));
+		second.stopPondering();
+		cache.close();
+		assertEquals(ITERATIONS, second.getLastPlayouts());
+		//on top of the visits the cache started it with
+		assertTrue(rootVisits(second) > ITERATIONS);
+	}
+
+	//every playout goes through exactly one root child, whichever thread played it
+	private static void assertRootVisits(SearchMode mode, int threads) throws MoveException {
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, threads);
+		player.setSearchMode(mode);
+		player.setSeed(1);
+		GameState state = newState(player);
+		Move chosen = player.getMove(state);
+		player.stopPondering();
+		assertEquals(mode + " on " + threads + " threads", ITERATIONS, rootVisits(player));
+		assertEquals(chosen, player.getLastSearchStatistics().get(0).getMove());
+	}
+
+	private static List<MoveStatistics> seededSearch(long seed) throws MoveException {
+		MCTSComputerPlayer player = new MCTSComputerPlayer(PlayerColor.BLACK, ITERATIONS, 1);
+		player.setSeed(seed);
+		player.getMove(newState(player));
+		player.stopPondering();
+		return player.getLastSearchStatistics();
+	}
+
+	private static void assertAmaf(MCTSTree tree, int node, int point, int visits, float wins){
+		int child = tree.findChild(node, point);
+		assertEquals("visits of " + point, visits, tree.getAmafVisits(child));
+		assertEquals("wins of " + point, wins, tree.getAmafWins(child), 0);
+	}
+
+	private static void play(GameState state, int x, int y) throws MoveException {
+		FastBoard board = state.getBoard();
+		state.addMove(board.getMove(board.point(x, y)));
+	}
+
+	private static int rootVisits(MCTSComputerPlayer player){
+		int visits = 0;
+		for (MoveStatistics statistics : player.getLastSearchStatistics()){
+			visits += statistics.getVisits();
+		}
+		return visits;
+	}
+
+	private static GameState newState(MCTSComputerPlayer black){
+		List<Player> players = new ArrayList<>();
+		players.add(black);
+		players.add(new HumanPlayer(PlayerColor.WHITE));
+		return new GameState(5, players);
+	}
+}
@@ -0,0 +1,315 @@
+package game.player;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import app.GameState;
+import enums.MoveType;
+import enums.PlayerColor;
+import exception.MoveException;
+import game.model.FastBoard;
+import game.model.Move;
+
+public class MCTSTreeTest {
+
+	@Test
+	public void testExpandTriesEveryMoveOnce() throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		Set<Integer> tried = new HashSet<>();
+		while (!tree.isFullyExpanded(root)){
+			int child = tree.expand(root, state, random);
+			assertNotEquals(MCTSTree.NO_NODE, child);
+			assertEquals(root, tree.getParent(child));
+			assertEquals(FastBoard.BLACK, tree.getPlayerJustMoved(child));
+			//the state is left at the child
+			Move last = state.getLastMove();
+			assertEquals(tree.getMove(child), last.getType().equals(MoveType.PASS) ? MCTSTree.PASS : state.getBoard().point(last));
+			assertTrue(tried.add(tree.getMove(child)));
+			state.undoMove();
+		}
+		//every point and a pass
+		assertEquals(10, tried.size());
+		assertTrue(tried.contains(MCTSTree.PASS));
+		assertEquals(MCTSTree.NO_NODE, tree.expand(root, state, random));
+		int children = 0;
+		for (int child = tree.getFirstChild(root); child != MCTSTree.NO_NODE; child = tree.getNextSibling(child)){
+			assertEquals(child, tree.findChild(root, tree.getMove(child)));
+			children++;
+		}
+		assertEquals(10, children);
+	}
+
+	@Test
+	public void testExpandIsReproducibleFromTheSeed() throws MoveException {
+		assertEquals(expansionOrder(7), expansionOrder(7));
+	}
+
+	@Test
+	public void testVirtualLossThenUpdate() throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		int child = tree.expand(root, state, new SplittableRandom(1));
+		tree.addVirtualLoss(child, 3);
+		assertEquals(3, tree.getVisits(child));
+		assertEquals(0, tree.getWins(child), 0);
+		tree.update(child, 2.5f);
+		tree.update(child, 0);
+		assertEquals(3, tree.getVisits(child));
+		assertEquals(2.5f, tree.getWins(child), 0);
+		tree.updateAmaf(child, 4, 1);
+		assertEquals(4, tree.getAmafVisits(child));
+		assertEquals(1, tree.getAmafWins(child), 0);
+	}
+
+	@Test
+	public void testSelectPrefersTheBetterChild() throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		int best = MCTSTree.NO_NODE;
+		while (!tree.isFullyExpanded(root)){
+			int child = tree.expand(root, state, random);
+			state.undoMove();
+			tree.addVirtualLoss(root, 20);
+			tree.addVirtualLoss(child, 20);
+			if (best == MCTSTree.NO_NODE){
+				best = child;
+				tree.update(child, 18);
+			} else {
+				tree.update(child, 5);
+			}
+		}
+		assertEquals(best, tree.selectChild(root, random));
+	}
+
+	@Test
+	public void testSelectTriesAnUnvisitedChild() throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		int fresh = MCTSTree.NO_NODE;
+		while (!tree.isFullyExpanded(root)){
+			int child = tree.expand(root, state, random);
+			state.undoMove();
+			if (fresh == MCTSTree.NO_NODE){
+				fresh = child;
+			} else {
+				tree.addVirtualLoss(root, 10);
+				tree.addVirtualLoss(child, 10);
+				tree.update(child, 9);
+			}
+		}
+		assertEquals(fresh, tree.selectChild(root, random));
+	}
+
+	@Test
+	public void testMovesAreGeneratedOnFirstExpansion() throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		assertEquals(-1, tree.getMoveCount(root));
+		int first = tree.expand(root, state, random);
+		state.undoMove();
+		//every point and a pass
+		assertEquals(10, tree.getMoveCount(root));
+		assertEquals(-1, tree.getMoveCount(first));
+		int second = tree.expand(root, state, random);
+		assertEquals(10, tree.getMoveCount(root));
+		assertEquals(-1, tree.getMoveCount(second));
+		tree.expand(second, state, random);
+		assertTrue(tree.getMoveCount(second) > 0);
+		assertEquals(-1, tree.getMoveCount(first));
+	}
+
+	@Test
+	public void testSlicesFromManyChunks() throws MoveException {
+		GameState state = newState(19);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		//a few dozen nodes of a 19x19 board take several chunks of the pool
+		List<Integer> children = new ArrayList<>();
+		for (int i = 0; i<40; i++){
+			int child = tree.expand(root, state, random);
+			tree.expand(child, state, random);
+			state.undoMove();
+			state.undoMove();
+			children.add(child);
+		}
+		int last = children.get(children.size() - 1);
+		if (tree.getMove(last) == MCTSTree.PASS){
+			last = children.get(children.size() - 2);
+		}
+		//one point is taken, a pass is added
+		assertEquals(361, tree.getMoveCount(last));
+		state.addMove(state.getBoard().getMove(tree.getMove(last)));
+		Set<Integer> tried = new HashSet<>();
+		for (int child = tree.getFirstChild(last); child != MCTSTree.NO_NODE; child = tree.getNextSibling(child)){
+			tried.add(tree.getMove(child));
+		}
+		while (!tree.isFullyExpanded(last)){
+			int child = tree.expand(last, state, random);
+			assertNotEquals(MCTSTree.NO_NODE, child);
+			assertTrue(tried.add(tree.getMove(child)));
+			state.undoMove();
+		}
+		assertEquals(361, tried.size());
+
+		MCTSTree kept = new MCTSTree();
+		kept.compactFrom(tree, children.get(0));
+		assertEquals(tree.getMoveCount(children.get(0)) - 1, kept.getMoveCount(kept.getRoot()));
+	}
+
+	@Test
+	public void testPassAfterPassEndsTheGame() throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		expandAll(tree, root, state, random);
+		int pass = tree.findChild(root, MCTSTree.PASS);
+		state.addMove(Move.getMoveInstance(MoveType.PASS, 0, 0));
+		assertFalse(tree.isTerminal(pass));
+		expandAll(tree, pass, state, random);
+		int passPass = tree.findChild(pass, MCTSTree.PASS);
+		state.addMove(Move.getMoveInstance(MoveType.PASS, 0, 0));
+		assertTrue(tree.isTerminal(passPass));
+		int size = tree.size();
+		assertEquals(passPass, tree.expand(passPass, state, random));
+		assertEquals(size, tree.size());
+		assertEquals(MCTSTree.NO_NODE, tree.getFirstChild(passPass));
+		assertEquals(-1, tree.getMoveCount(passPass));
+
+		MCTSTree kept = new MCTSTree();
+		kept.compactFrom(tree, passPass);
+		assertTrue(kept.isTerminal(kept.getRoot()));
+	}
+
+	@Test
+	public void testCompactKeepsTheSubtree() throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		int child = tree.expand(root, state, random);
+		tree.addVirtualLoss(child, 4);
+		tree.update(child, 3);
+		int grandchild = tree.expand(child, state, random);
+		tree.addVirtualLoss(grandchild, 2);
+		tree.update(grandchild, 1);
+
+		MCTSTree kept = new MCTSTree();
+		kept.compactFrom(tree, child);
+		int newRoot = kept.getRoot();
+		assertEquals(MCTSTree.NO_NODE, kept.getParent(newRoot));
+		assertEquals(4, kept.getVisits(newRoot));
+		int copied = kept.findChild(newRoot, tree.getMove(grandchild));
+		assertNotEquals(MCTSTree.NO_NODE, copied);
+		assertEquals(2, kept.getVisits(copied));
+		assertEquals(1, kept.getWins(copied), 0);
+		assertEquals(2, kept.size());
+	}
+
+	@Test
+	public void testRaveGivesWayToRealValues() throws MoveException {
+		//the AMAF values lead while the child has few visits of its own
+		assertEquals(0, favourite(10));
+		assertEquals(1, favourite(100000));
+	}
+
+	//gives every root child the same visits, the first a poor real value but a good AMAF value and the
+	//second a better real value, and tells which of the two is selected
+	private static int favourite(int visits) throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		tree.setRaveEquivalence(1000);
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		List<Integer> children = expandAll(tree, root, state, random);
+		for (int child : children){
+			tree.addVirtualLoss(root, visits);
+			tree.addVirtualLoss(child, visits);
+		}
+		int amafChild = children.get(0);
+		int realChild = children.get(1);
+		tree.update(amafChild, 0.2f * visits);
+		tree.updateAmaf(amafChild, 100, 90);
+		tree.update(realChild, 0.6f * visits);
+		return children.indexOf(tree.selectChild(root, random));
+	}
+
+	@Test
+	public void testBiasFadesWithVisits() throws MoveException {
+		//a bias of 2 over visits + 1 beats a real value of 0.45 at 3 visits, but no longer at 4
+		assertTrue(biasedIsSelected(3));
+		assertFalse(biasedIsSelected(4));
+	}
+
+	//gives every root child the same visits, all but the biased one winning 0.45 of them and the biased one
+	//none, and tells whether the biased one is selected
+	private static boolean biasedIsSelected(int visits) throws MoveException {
+		GameState state = newState(3);
+		final int biased = state.getBoard().point(1, 1);
+		MCTSTree tree = new MCTSTree();
+		tree.setMovePrior(new MovePrior(){
+			@Override
+			public float getBias(GameState state, int point, PlayerColor player) {
+				return point == biased ? 2 : 0;
+			}
+		});
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(1);
+		for (int child : expandAll(tree, root, state, random)){
+			tree.addVirtualLoss(root, visits);
+			tree.addVirtualLoss(child, visits);
+			if (tree.getMove(child) != biased){
+				tree.update(child, 0.45f * visits);
+			}
+		}
+		return tree.getMove(tree.selectChild(root, random)) == biased;
+	}
+
+	private static List<Integer> expansionOrder(long seed) throws MoveException {
+		GameState state = newState(3);
+		MCTSTree tree = new MCTSTree();
+		int root = tree.createRoot(state);
+		SplittableRandom random = new SplittableRandom(seed);
+		List<Integer> order = new ArrayList<>();
+		while (!tree.isFullyExpanded(root)){
+			order.add(tree.getMove(tree.expand(root, state, random)));
+			state.undoMove();
+		}
+		return order;
+	}
+
+	//expands every move of the node, leaving the state where it was
+	static List<Integer> expandAll(MCTSTree tree, int node, GameState state, SplittableRandom random) throws MoveException {
+		List<Integer> children = new ArrayList<>();
+		while (!tree.isFullyExpanded(node)){
+			children.add(tree.expand(node, state, random));
+			state.undoMove();
+		}
+		return children;
+	}
+
+	static GameState newState(int size){
+		List<Player> players = new ArrayList<>();
+		players.add(new HumanPlayer(PlayerColor.BLACK));
+		players.add(new HumanPlayer(PlayerColor.WHITE));
+		return new GameState(size, players);
+	}
+}
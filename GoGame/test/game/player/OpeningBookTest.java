@@ -0,0 +1,83 @@
+package game.player;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import app.GameState;
+import exception.MoveException;
+import game.model.FastBoard;
+import game.model.Move;
+
+public class OpeningBookTest {
+
+	private static final int SIZE = 5;
+	//black, white, black, then the book move for white
+	private static final int[][] MOVES = {{1, 0}, {3, 1}, {0, 2}};
+	private static final int[] BOOK_MOVE = {2, 3};
+
+	@Test
+	public void testEveryOrientationFindsTheMove() throws MoveException, IOException {
+		OpeningBook book = new OpeningBook(writeBook());
+		assertEquals(SIZE, book.getBoardSize());
+		assertEquals(1, book.getSize());
+		for (int symmetry = 0; symmetry<FastBoard.SYMMETRIES; symmetry++){
+			GameState state = playTurned(symmetry);
+			FastBoard board = state.getBoard();
+			Move expected = board.getMove(board.transform(board.point(BOOK_MOVE[0], BOOK_MOVE[1]), symmetry));
+			assertEquals("symmetry " + symmetry, expected, book.getMove(state));
+		}
+	}
+
+	@Test
+	public void testPositionNotInTheBook() throws MoveException, IOException {
+		OpeningBook book = new OpeningBook(writeBook());
+		GameState state = MCTSTreeTest.newState(SIZE);
+		assertNull(book.getMove(state));
+	}
+
+	@Test
+	public void testMoveOffTheBoardIsIgnored() throws MoveException, IOException {
+		File file = writeBook();
+		GameState state = playTurned(0);
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			//some of these wrap around onto the board when turned, -1 is a pass
+			for (int move = -4 * SIZE * SIZE; move<4 * SIZE * SIZE; move++){
+				if (move >= -1 && move < SIZE * SIZE){
+					continue;
+				}
+				//the move of the only entry, after the header and its key
+				out.seek(16 + 8);
+				out.writeInt(move);
+				assertNull("move " + move, new OpeningBook(file).getMove(state));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static File writeBook() throws MoveException, IOException {
+		GameState state = playTurned(0);
+		Move move = state.getBoard().getMove(state.getBoard().point(BOOK_MOVE[0], BOOK_MOVE[1]));
+		File file = File.createTempFile("book", ".bin");
+		file.deleteOnExit();
+		OpeningBook.write(file, SIZE, Collections.singleton(new OpeningBook.Entry(state, move, 100, 60)));
+		return file;
+	}
+
+	//plays the moves on a board turned by the symmetry
+	private static GameState playTurned(int symmetry) throws MoveException {
+		GameState state = MCTSTreeTest.newState(SIZE);
+		FastBoard board = state.getBoard();
+		for (int[] move : MOVES){
+			state.addMove(board.getMove(board.transform(board.point(move[0], move[1]), symmetry)));
+		}
+		return state;
+	}
+}
@@ -0,0 +1,143 @@
+package game.player;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import app.GameState;
+import exception.MoveException;
+import game.model.FastBoard;
+
+public class StatisticsCacheTest {
+
+	private static final int SIZE = 5;
+	private static final long BYTES = 1 << 16;
+	//header and record layout of the file
+	private static final int HEADER_BYTES = 28;
+	private static final int RECORD_HEADER_BYTES = 24;
+	private static final int RECORD_BYTES = RECORD_HEADER_BYTES + SIZE * SIZE * 10;
+
+	@Test
+	public void testStoreThenLoad() throws MoveException, IOException {
+		File file = newFile();
+		GameState state = newState();
+		StatisticsCache cache = new StatisticsCache(file, SIZE, BYTES);
+		cache.store(state, statistics(state));
+		cache.close();
+
+		cache = new StatisticsCache(file, SIZE, BYTES);
+		List<MoveStatistics> loaded = cache.load(state);
+		cache.close();
+		List<MoveStatistics> stored = statistics(state);
+		assertEquals(stored.size(), loaded.size());
+		for (int i = 0; i<stored.size(); i++){
+			assertEquals(stored.get(i).getMove(), loaded.get(i).getMove());
+			assertEquals(stored.get(i).getVisits(), loaded.get(i).getVisits());
+			assertEquals(stored.get(i).getWins(), loaded.get(i).getWins(), 0);
+		}
+	}
+
+	@Test
+	public void testDamagedRecordIsMissed() throws MoveException, IOException {
+		File file = newFile();
+		GameState state = newState();
+		StatisticsCache cache = new StatisticsCache(file, SIZE, BYTES);
+		cache.store(state, statistics(state));
+		cache.close();
+
+		//the first move of the only record that was written
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			long offset = HEADER_BYTES;
+			while (true){
+				out.seek(offset);
+				if (out.readLong() != 0){
+					break;
+				}
+				offset += RECORD_BYTES;
+			}
+			flip(out, offset + RECORD_HEADER_BYTES + 2);
+		} finally {
+			out.close();
+		}
+
+		cache = new StatisticsCache(file, SIZE, BYTES);
+		assertTrue(cache.load(state).isEmpty());
+		cache.close();
+	}
+
+	@Test
+	public void testDamagedHeaderStartsOver() throws MoveException, IOException {
+		File file = newFile();
+		GameState state = newState();
+		StatisticsCache cache = new StatisticsCache(file, SIZE, BYTES);
+		cache.store(state, statistics(state));
+		cache.close();
+		long length = file.length();
+
+		//version, board size, slots and CRC, the magic number still says it is a cache
+		for (long position = 4; position<20; position++){
+			RandomAccessFile out = new RandomAccessFile(file, "rw");
+			try {
+				flip(out, position);
+			} finally {
+				out.close();
+			}
+			cache = new StatisticsCache(file, SIZE, BYTES);
+			assertTrue("byte " + position, cache.load(state).isEmpty());
+			cache.store(state, statistics(state));
+			cache.close();
+			assertEquals(length, file.length());
+		}
+	}
+
+	@Test
+	public void testOtherFilesAreLeftAlone() throws IOException {
+		File file = newFile();
+		byte[] contents = "not a cache, but somebody's notes".getBytes("UTF-8");
+		Files.write(file.toPath(), contents);
+		try {
+			new StatisticsCache(file, SIZE, BYTES);
+			fail("opened a file that is not a cache");
+		} catch (IOException e){
+			//expected
+		}
+		assertTrue(Arrays.equals(contents, Files.readAllBytes(file.toPath())));
+	}
+
+	private static void flip(RandomAccessFile file, long position) throws IOException {
+		file.seek(position);
+		int value = file.read();
+		file.seek(position);
+		file.write(value ^ 0xFF);
+	}
+
+	private static File newFile() throws IOException {
+		File file = File.createTempFile("statistics", ".bin");
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static GameState newState() throws MoveException {
+		GameState state = MCTSTreeTest.newState(SIZE);
+		FastBoard board = state.getBoard();
+		state.addMove(board.getMove(board.point(2, 2)));
+		return state;
+	}
+
+	private static List<MoveStatistics> statistics(GameState state){
+		FastBoard board = state.getBoard();
+		List<MoveStatistics> statistics = new ArrayList<>();
+		statistics.add(new MoveStatistics(board.getMove(board.point(1, 2)), 40, 25.5f));
+		statistics.add(new MoveStatistics(board.getMove(board.point(3, 1)), 12, 4));
+		return statistics;
+	}
+}
@@ -0,0 +1,83 @@
+package game.player;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TranspositionTableTest {
+
+	//keys that all start probing at the same entry of a table of 8
+	private static final long[] SAME_SLOT = {0x11, 0x19, 0x21, 0x29, 0x31};
+
+	@Test
+	public void testLookupFindsTheSameEntry() {
+		TranspositionTable table = new TranspositionTable(8);
+		assertEquals(8, table.getCapacity());
+		int entry = table.lookup(SAME_SLOT[0]);
+		assertNotEquals(TranspositionTable.NO_ENTRY, entry);
+		assertEquals(entry, table.lookup(SAME_SLOT[0]));
+		assertNotEquals(entry, table.lookup(SAME_SLOT[1]));
+		assertTrue(table.matches(entry, SAME_SLOT[0]));
+		assertFalse(table.matches(entry, SAME_SLOT[1]));
+	}
+
+	@Test
+	public void testKeyIsNeverEmpty() {
+		assertNotEquals(0, TranspositionTable.key(0));
+		assertEquals(42, TranspositionTable.key(42));
+	}
+
+	@Test
+	public void testUpdatesOnlyCountForTheirPosition() {
+		TranspositionTable table = new TranspositionTable(8);
+		int entry = table.lookup(SAME_SLOT[0]);
+		table.addVirtualLoss(entry, SAME_SLOT[0], 3);
+		table.update(entry, SAME_SLOT[0], 2);
+		table.addVirtualLoss(entry, SAME_SLOT[1], 5);
+		table.update(entry, SAME_SLOT[1], 5);
+		assertEquals(3, table.getVisits(entry));
+		assertEquals(2, table.getWins(entry), 0);
+	}
+
+	@Test
+	public void testReplacesTheEntryWithFewestVisits() {
+		TranspositionTable table = new TranspositionTable(8);
+		int[] entries = new int[4];
+		for (int i = 0; i<4; i++){
+			entries[i] = table.lookup(SAME_SLOT[i]);
+			table.addVirtualLoss(entries[i], SAME_SLOT[i], i == 2 ? 1 : 10);
+		}
+		int replaced = table.lookup(SAME_SLOT[4]);
+		assertEquals(entries[2], replaced);
+		assertTrue(table.matches(replaced, SAME_SLOT[4]));
+		assertFalse(table.matches(entries[2], SAME_SLOT[2]));
+		assertEquals(0, table.getVisits(replaced));
+		//the old position no longer gets the new one's visits
+		table.addVirtualLoss(replaced, SAME_SLOT[2], 7);
+		assertEquals(0, table.getVisits(replaced));
+	}
+
+	@Test
+	public void testReplacesEntriesFromEarlierSearchesFirst() {
+		TranspositionTable table = new TranspositionTable(8);
+		int[] entries = new int[4];
+		for (int i = 0; i<4; i++){
+			entries[i] = table.lookup(SAME_SLOT[i]);
+			table.addVirtualLoss(entries[i], SAME_SLOT[i], 10 + i);
+		}
+		table.nextGeneration();
+		//used again in the new search, but with fewer visits than the others
+		table.lookup(SAME_SLOT[0]);
+		assertEquals(entries[1], table.lookup(SAME_SLOT[4]));
+	}
+
+	@Test
+	public void testClearDropsEveryEntry() {
+		TranspositionTable table = new TranspositionTable(8);
+		int entry = table.lookup(SAME_SLOT[0]);
+		table.addVirtualLoss(entry, SAME_SLOT[0], 4);
+		table.clear();
+		assertFalse(table.matches(entry, SAME_SLOT[0]));
+		assertEquals(0, table.getVisits(entry));
+	}
+}